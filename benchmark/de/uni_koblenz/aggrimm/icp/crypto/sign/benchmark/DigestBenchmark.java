@@ -0,0 +1,105 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.benchmark;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmInterface;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmList;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.FrameworkProvider;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.trigplus.TriGPlusReader;
+
+/**
+ * Compares the digest algorithms which can be used as graph digest
+ * (SHA-256, SHA-512 and the built-in BLAKE2b) on raw input and on the
+ * hashing step of all framework configurations.
+ *
+ * Usage: DigestBenchmark input-graph [iterations]
+ */
+public class DigestBenchmark {
+
+	private static final String[] digests = { "sha-256", "sha-512", "blake2b-512", "blake2b-256" };
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: DigestBenchmark input-graph [iterations]");
+			System.exit(1);
+		}
+		String inputGraph = args[0];
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		FrameworkProvider.install();
+
+		benchmarkRaw(iterations);
+		for (SignatureAlgorithmInterface config : SignatureAlgorithmList.getList()) {
+			benchmarkHash(config, inputGraph, iterations);
+		}
+	}
+
+	/**
+	 * Measures the throughput of the digests for short terms (IRIs/literals)
+	 * and for long input
+	 */
+	private static void benchmarkRaw(int iterations) throws Exception {
+		Random random = new Random(42);
+		byte[] term = new byte[48];
+		byte[] block = new byte[1 << 20];
+		random.nextBytes(term);
+		random.nextBytes(block);
+		int terms = 200000;
+
+		System.out.println("Raw digest throughput");
+		System.out.println(String.format("%-14s %14s %14s", "digest", "48 B terms/s", "1 MiB MB/s"));
+		for (String name : digests) {
+			MessageDigest d = MessageDigest.getInstance(name);
+			// Warm up
+			for (int i = 0; i < terms; ++i) {
+				d.digest(term);
+			}
+			d.digest(block);
+
+			long start = System.nanoTime();
+			for (int n = 0; n < iterations; ++n) {
+				for (int i = 0; i < terms; ++i) {
+					d.digest(term);
+				}
+			}
+			double termRate = (double) terms * iterations / ((System.nanoTime() - start) / 1e9);
+
+			start = System.nanoTime();
+			for (int n = 0; n < iterations * 16; ++n) {
+				d.digest(block);
+			}
+			double blockRate = 16.0 * iterations / ((System.nanoTime() - start) / 1e9);
+
+			System.out.println(String.format("%-14s %14.0f %14.1f", name, termRate, blockRate));
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Measures the hashing step of a framework configuration (the graph is
+	 * read and canonicalized again before each iteration)
+	 */
+	private static void benchmarkHash(SignatureAlgorithmInterface config,
+			String inputGraph, int iterations) throws Exception {
+		System.out.println("Hashing with " + config.getName());
+		System.out.println(String.format("%-14s %14s", "digest", "ms/hash"));
+		for (String name : digests) {
+			long total = 0;
+			// First iteration is used for warm up
+			for (int n = 0; n <= iterations; ++n) {
+				GraphCollection gc = TriGPlusReader.readFile(inputGraph, true);
+				config.canonicalize(gc);
+				config.postCanonicalize(gc);
+				long start = System.nanoTime();
+				config.hash(gc, name);
+				if (n > 0) {
+					total += System.nanoTime() - start;
+				}
+			}
+			System.out.println(String.format("%-14s %14.3f", name, total / 1e6 / iterations));
+		}
+		System.out.println();
+	}
+}
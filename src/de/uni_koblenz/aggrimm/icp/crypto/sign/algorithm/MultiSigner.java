@@ -0,0 +1,61 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm.SignatureAlgorithmTummarello2005;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Assembler;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Signer;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData;
+
+/**
+ * Automatically performs all steps for signing a graph collection with several keys (co-signing).
+ * The graph collection is canonicalized and hashed once, the hash is signed with all keys in parallel.
+ * All signatures are added to one signature graph (multi-signature graph), which can be verified with
+ * {@link SignatureVerifier#verifySignatures(GraphCollection, java.util.Collection)}.
+ *
+ * tummarello-2005 is not supported because it signs each MSG instead of a hash of the graph collection.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class MultiSigner {
+
+	/**
+	 * Signs a graph collection with several keys
+	 *
+	 * @param gc  {@link GraphCollection} to sign
+	 * @param algorithm  signature algorithm
+	 * @param digestAlgo  digest algorithm (e.g. sha-256)
+	 * @param privateKeys  private keys for signature calculation
+	 * @param verificationCertificates  certificate information (one per key)
+	 * @param signatureGraphName  name of signature graph
+	 * @return  signature data of each key
+	 * @throws Exception  if the algorithm does not support multiple signatures or if a step failed
+	 */
+	public static ArrayList<SignatureData> sign(GraphCollection gc, SignatureAlgorithmInterface algorithm, String digestAlgo,
+			List<? extends Key> privateKeys, List<String> verificationCertificates, String signatureGraphName) throws Exception {
+		if (algorithm instanceof SignatureAlgorithmTummarello2005){
+			throw new Exception("Multiple signatures are not supported by "+algorithm.getName());
+		}
+		if (privateKeys.isEmpty()){
+			throw new Exception("No keys for signing");
+		}
+
+		//Canonicalize and hash once
+		algorithm.canonicalize(gc);
+		algorithm.postCanonicalize(gc);
+		algorithm.hash(gc, digestAlgo);
+		algorithm.postHash(gc);
+
+		//Sign hash with all keys
+		ArrayList<SignatureData> signatures=Signer.sign(gc, privateKeys, verificationCertificates);
+		gc.setSignature(signatures.get(0));
+
+		//Assemble multi-signature graph
+		Assembler.assemble(gc, signatureGraphName, signatures);
+		return signatures;
+	}
+
+}
@@ -47,8 +47,9 @@ public class SignatureAlgorithmList {
 	 * Initializes an algorithm list
 	 * Algorithms which are added to this framework should be added to this list as well.
 	 * Algorithms in this list will be used for automated verification and evaluation.
+	 * Synchronized because signature graphs may be verified by several threads.
 	 */
-	private static void initialize(){
+	private static synchronized void initialize(){
 		//Initialization has to be done only once
 		if (list==null){
 			//Prepare list
@@ -58,6 +59,9 @@ public class SignatureAlgorithmList {
 			list.add(new SignatureAlgorithmFisteus2010());
 			list.add(new SignatureAlgorithmSayers2004());
 			list.add(new SignatureAlgorithmTummarello2005());
+			list.add(new SignatureAlgorithmCarroll2003Merkle());
+			list.add(new SignatureAlgorithmCarroll2003Components());
+			list.add(new SignatureAlgorithmRdfc10());
 		}
 	}
 	
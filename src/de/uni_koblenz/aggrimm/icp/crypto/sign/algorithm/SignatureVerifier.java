@@ -2,8 +2,18 @@ package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm;
 
 import java.security.Key;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm.SignatureAlgorithmTummarello2005;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SignatureMethod;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Verifier;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.trigplus.TriGPlusReader;
@@ -64,7 +74,10 @@ public class SignatureVerifier {
 	
 	/**
 	 * Verify a graph collection using a public key
-	 * A graph collection can only be verified if it contains just a signature graph at root level and nothing else!
+	 * A graph collection can only be verified if it contains just signature graphs at root level and nothing else!
+	 * A multi-signature graph is verified if any of its signatures is valid for the key.
+	 * Several signature graphs (e.g. of merged sources) are verified independently and must all be valid
+	 * (see {@link #verifySignatureGraphs(GraphCollection, Key)}).
 	 * 
 	 * @param path path to a file containing graph data
 	 * @param publicKey a public key for signature verification
@@ -72,6 +85,532 @@ public class SignatureVerifier {
 	 * @throws Exception  if full verification failed
 	 */
 	public static boolean verify(GraphCollection gc, Key publicKey) throws Exception{		
+		//Several signature graphs at root level
+		if (countSignatureGraphs(gc)>1){
+			return VerificationResult.isVerified(verifySignatureGraphs(gc, publicKey));
+		}
+		
+		//Remove signature graph and get signature data
+		ArrayList<SignatureData> signatures=removeSignatureGraphWithSignatures(gc);
+		gc.setSignature(signatures.get(0));
+		
+		return verifySigned(gc, signatures, publicKey);
+	}
+	
+	/**
+	 * Verify a graph collection whose signature graph has been removed
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data
+	 * @param signatures  signature data of all signatures of the signature graph
+	 * @param publicKey a public key for signature verification
+	 * @return  true if successfully verified, false otherwise
+	 * @throws Exception  if full verification failed
+	 */
+	private static boolean verifySigned(GraphCollection gc, ArrayList<SignatureData> signatures, Key publicKey) throws Exception{
+        return verifyHashed(gc, canonicalizeAndHash(gc, signatures), signatures, publicKey);
+	}
+	
+	/**
+	 * Verify a canonicalized and hashed graph collection
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data
+	 * @param hashingAlgorithm  algorithm used for hashing
+	 * @param signatures  signature data of all signatures of the signature graph
+	 * @param publicKey a public key for signature verification
+	 * @return  true if any signature is valid for the key, false otherwise
+	 * @throws Exception  if verification failed
+	 */
+	private static boolean verifyHashed(GraphCollection gc, SignatureAlgorithmInterface hashingAlgorithm, ArrayList<SignatureData> signatures, Key publicKey) throws Exception{
+		//Single signature: use method of hashing algorithm (keys of another type cannot verify it)
+		if (signatures.size()==1){
+			return SignatureMethod.fitsKey(SignatureMethod.getMethod(gc.getSignature(), publicKey), publicKey)
+					&& hashingAlgorithm.verify(gc, publicKey);
+		}
+		
+		//Multi-signature graph: check the signature values of signatures the key fits (they all sign the same hash)
+		for (SignatureData sigData:signatures){
+			if (SignatureMethod.fitsKey(SignatureMethod.getMethod(sigData, publicKey), publicKey)
+					&& Verifier.verify(sigData, publicKey)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Canonicalize and hash a graph collection whose signature graph has been removed
+	 * Algorithms are detected by reading the signature data.
+	 * The signatures of a multi-signature graph get the hash as well (they must use the same graph signing method).
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data
+	 * @param signatures  signature data of all signatures of the signature graph
+	 * @return  hashing algorithm (used for verification)
+	 * @throws Exception  if no algorithm has been found or if canonicalization/hashing failed
+	 */
+	private static SignatureAlgorithmInterface canonicalizeAndHash(GraphCollection gc, ArrayList<SignatureData> signatures) throws Exception{
+		SignatureData sigData=gc.getSignature();
+		if (signatures.size()>1){
+			checkMultiSignature(signatures);
+		}
+		
+        //Get Algorithm List
+        LinkedList<SignatureAlgorithmInterface> list=SignatureAlgorithmList.getList();	//List of all existing signature algorithms
+        
+        //Get algorithms
+        SignatureAlgorithmInterface canonicalizationAlgorithm=null;				//Algorithm used for canonicalization
+        SignatureAlgorithmInterface hashingAlgorithm=null;						//Algorithm used for hashing
+        for (SignatureAlgorithmInterface a:list){
+        	//Get canonicalization algorithm (new instance, algorithms keep state and may run in several threads)
+        	if ( (Ontology.getCanonicalizationPrefix()+a.getName()).equals( sigData.getCanonicalizationMethod() ) ){
+        		canonicalizationAlgorithm=a.getClass().getConstructor().newInstance();
+        	}
+        	//Get hashing algorithm
+        	if ( (Ontology.getDigestPrefix()+a.getName()).equals( sigData.getGraphDigestMethod() ) ){
+        		hashingAlgorithm=(canonicalizationAlgorithm!=null && canonicalizationAlgorithm.getClass()==a.getClass())
+        				? canonicalizationAlgorithm : a.getClass().getConstructor().newInstance();
+        	}
+        }
+        
+        //Get digest algorithm (canonicalization may replace the digest of the signature data)
+        String digestAlgo=sigData.getDigestGen().getAlgorithm().toLowerCase();
+        
+        //Canonicalize
+        if (canonicalizationAlgorithm!=null){
+        	canonicalizationAlgorithm.canonicalize(gc);
+        	canonicalizationAlgorithm.postCanonicalize(gc);
+        }else{
+        	throw new Exception("No algorithm found for graph canoncialization method '"+sigData.getCanonicalizationMethod()+"'");
+        }
+        
+        //Hash
+        if (hashingAlgorithm!=null){
+        	hashingAlgorithm.hash(gc, digestAlgo );
+        	hashingAlgorithm.postHash(gc);
+        }else{
+        	throw new Exception("No algorithm found for graph digest method '"+sigData.getGraphDigestMethod()+"'");
+        }
+        
+        //Other signatures sign the same hash
+        for (SignatureData s:signatures){
+        	s.setHash(gc.getSignature().getHash());
+        }
+        
+        return hashingAlgorithm;
+	}
+	
+	/**
+	 * Checks whether all signatures of a multi-signature graph can be verified with one hash
+	 * 
+	 * @param signatures  signature data of all signatures of the signature graph
+	 * @throws Exception  if the signatures use different graph signing methods or if they are MSG signatures
+	 */
+	private static void checkMultiSignature(ArrayList<SignatureData> signatures) throws Exception{
+		SignatureData first=signatures.get(0);
+		String tummarello=Ontology.getDigestPrefix()+Ontology.getAlgorithmNameTummarello2005();
+		if (tummarello.equals(first.getGraphDigestMethod())){
+			throw new Exception("Failed to verify: " +
+					"Multi-signature graphs are not supported by "+Ontology.getAlgorithmNameTummarello2005()+". ");
+		}
+		for (SignatureData s:signatures){
+			if (s.getDigestGen()==null || first.getDigestGen()==null
+					|| !s.getDigestGen().getAlgorithm().equals(first.getDigestGen().getAlgorithm())
+					|| !String.valueOf(s.getCanonicalizationMethod()).equals(first.getCanonicalizationMethod())
+					|| !String.valueOf(s.getGraphDigestMethod()).equals(first.getGraphDigestMethod())){
+				throw new Exception("Failed to verify: " +
+						"Signatures with different graph signing methods detected. ");
+			}
+		}
+	}
+	
+	/**
+	 * Verify all signatures of a (multi-signature) graph collection using several public keys
+	 * The graph collection is canonicalized and hashed once, signatures are checked in parallel (see {@link WorkerPool}).
+	 * 
+	 * @param gc  signed {@link GraphCollection} (see {@link #verify(GraphCollection, Key)})
+	 * @param publicKeys  public keys for signature verification
+	 * @return  one result per signature (verified if the signature is valid for any of the keys)
+	 * @throws Exception  if verification failed
+	 */
+	public static ArrayList<VerificationResult> verifySignatures(GraphCollection gc, final Collection<? extends Key> publicKeys) throws Exception{
+		//Remove signature graph and get signature data
+		final ArrayList<SignatureData> signatures=removeSignatureGraphWithSignatures(gc);
+		gc.setSignature(signatures.get(0));
+		SignatureAlgorithmInterface hashingAlgorithm=canonicalizeAndHash(gc, signatures);
+		
+		ArrayList<VerificationResult> results=new ArrayList<VerificationResult>(signatures.size());
+		if (signatures.size()==1){
+			//Single signature: use method of hashing algorithm
+			boolean verified=false;
+			for (Key publicKey:publicKeys){
+				if (SignatureMethod.fitsKey(SignatureMethod.getMethod(gc.getSignature(), publicKey), publicKey)
+						&& hashingAlgorithm.verify(gc, publicKey)){
+					verified=true;
+					break;
+				}
+			}
+			results.add(new VerificationResult(null, null, verified, verified ? null : "Invalid signature"));
+		}else{
+			//Multi-signature graph: check each signature with all keys
+			ArrayList<Callable<Boolean>> tasks=new ArrayList<Callable<Boolean>>(signatures.size());
+			for (final SignatureData sigData:signatures){
+				tasks.add(new Callable<Boolean>(){
+					public Boolean call() throws Exception {
+						for (Key publicKey:publicKeys){
+							if (SignatureMethod.fitsKey(SignatureMethod.getMethod(sigData, publicKey), publicKey)
+									&& Verifier.verify(sigData, publicKey)){
+								return true;
+							}
+						}
+						return false;
+					}
+				});
+			}
+			List<Boolean> verified=WorkerPool.invokeAll(tasks);
+			for (int i=0; i<verified.size(); i++){
+				results.add(new VerificationResult(null, null, verified.get(i), verified.get(i) ? null : "Invalid signature "+(i+1)));
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Verify a graph collection using several public keys without changing it
+	 * A copy of the graph collection is canonicalized and hashed once and checked against each key
+	 * in parallel (see {@link WorkerPool}). With tummarello-2005, keys are checked one after another
+	 * because the MSG signatures are checked by the parallel mode of the algorithm itself.
+	 * 
+	 * @param gc  signed {@link GraphCollection} (see {@link #verify(GraphCollection, Key)}, not changed)
+	 * @param publicKeys  public keys for signature verification
+	 * @return  verification result of each key (in order of the keys)
+	 * @throws Exception  if verification failed
+	 */
+	public static ArrayList<Boolean> verifyKeys(GraphCollection gc, List<? extends Key> publicKeys) throws Exception{
+		//Remove signature graph of a copy, canonicalize and hash it
+		final GraphCollection copy=gc.copy();
+		final ArrayList<SignatureData> signatures=removeSignatureGraphWithSignatures(copy);
+		copy.setSignature(signatures.get(0));
+		final SignatureAlgorithmInterface hashingAlgorithm=canonicalizeAndHash(copy, signatures);
+		
+		//Check each key
+		ArrayList<Callable<Boolean>> tasks=new ArrayList<Callable<Boolean>>(publicKeys.size());
+		for (final Key publicKey:publicKeys){
+			tasks.add(new Callable<Boolean>(){
+				public Boolean call() throws Exception {
+					//Keys of another type cannot verify a single signature
+					if (signatures.size()==1 && !SignatureMethod.fitsKey(SignatureMethod.getMethod(copy.getSignature(), publicKey), publicKey)){
+						return false;
+					}
+					return verifyHashed(copy, hashingAlgorithm, signatures, publicKey);
+				}
+			});
+		}
+		ArrayList<Boolean> results=new ArrayList<Boolean>(publicKeys.size());
+		if (hashingAlgorithm instanceof SignatureAlgorithmTummarello2005){
+			for (Callable<Boolean> task:tasks){
+				results.add(task.call());
+			}
+		}else{
+			results.addAll(WorkerPool.invokeAll(tasks));
+		}
+		return results;
+	}
+	
+	/**
+	 * Verify each signature graph at root level of a graph collection independently using a public key
+	 * (see {@link #verifySignatureGraphs(GraphCollection, Collection)})
+	 * 
+	 * @param gc  signed {@link GraphCollection} (must contain just signature graphs at root level and nothing else)
+	 * @param publicKey a public key for signature verification
+	 * @return  one result per signature graph
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	public static ArrayList<VerificationResult> verifySignatureGraphs(GraphCollection gc, Key publicKey) throws Exception{
+		return verifySignatureGraphs(gc, Collections.singletonList(publicKey));
+	}
+	
+	/**
+	 * Verify each signature graph at root level of a graph collection independently using several public keys
+	 * A graph collection merged from several signed sources contains one signature graph per source.
+	 * Each signature graph is moved to a graph collection of its own (see {@link #splitSignatureGraphs(GraphCollection)}),
+	 * which is canonicalized, hashed and verified by a task of the {@link WorkerPool}.
+	 * 
+	 * @param gc  signed {@link GraphCollection} (must contain just signature graphs at root level and nothing else)
+	 * @param publicKeys  public keys for signature verification
+	 * @return  one result per signature graph in order of appearance (verified if the signature graph is valid for any of the keys,
+	 * 			graph name is the name of the signature graph)
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	public static ArrayList<VerificationResult> verifySignatureGraphs(GraphCollection gc, final Collection<? extends Key> publicKeys) throws Exception{
+		ArrayList<GraphCollection> parts=splitSignatureGraphs(gc);
+		
+		//Verify each signature graph
+		ArrayList<Callable<VerificationResult>> tasks=new ArrayList<Callable<VerificationResult>>(parts.size());
+		for (final GraphCollection part:parts){
+			final String graphName=part.getGraphs().getFirst().getName();
+			tasks.add(new Callable<VerificationResult>(){
+				public VerificationResult call() throws Exception {
+					try {
+						//Remove signature graph, canonicalize and hash
+						ArrayList<SignatureData> signatures=removeSignatureGraphWithSignatures(part);
+						part.setSignature(signatures.get(0));
+						SignatureAlgorithmInterface hashingAlgorithm=canonicalizeAndHash(part, signatures);
+						
+						//Check keys
+						for (Key publicKey:publicKeys){
+							//Keys of another type cannot verify a single signature
+							if (signatures.size()==1 && !SignatureMethod.fitsKey(SignatureMethod.getMethod(part.getSignature(), publicKey), publicKey)){
+								continue;
+							}
+							if (verifyHashed(part, hashingAlgorithm, signatures, publicKey)){
+								return new VerificationResult(graphName, null, true, null);
+							}
+						}
+						return new VerificationResult(graphName, null, false, "Invalid signature");
+					} catch (Exception e){
+						return new VerificationResult(graphName, null, false, e.getMessage());
+					}
+				}
+			});
+		}
+		return new ArrayList<VerificationResult>(WorkerPool.invokeAll(tasks));
+	}
+	
+	/**
+	 * Splits a graph collection with several signature graphs at root level into graph collections with one signature graph each
+	 * The signature graphs are moved to the new graph collections, prefixes are shared.
+	 * 
+	 * @param gc  signed {@link GraphCollection} (must contain just signature graphs at root level and nothing else)
+	 * @return  one graph collection per signature graph (in order of appearance)
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	public static ArrayList<GraphCollection> splitSignatureGraphs(GraphCollection gc) throws Exception{
+		ArrayList<GraphCollection> parts=new ArrayList<GraphCollection>();
+		int unsignedGraphs=0;
+		for (NamedGraph g:gc.getGraphs()){
+			if (g.getDepth()==-1){
+				//No statements at root level allowed!
+				if (!g.getTriples().isEmpty()){
+					throw new Exception("Failed to verify: " +
+							"Graph contains statements at root level (outside signature graphs). " +
+							"A successful verificaton of contained signed graphs would not ensure the integrity and authenticity of all data. ");
+				}
+			}else if (isSignatureGraph(g)){
+				GraphCollection part=new GraphCollection();
+				for (Prefix p:gc.getPrefixes()){
+					part.addPrefix(p);
+				}
+				part.addGraph(g);
+				parts.add(part);
+			}else{
+				unsignedGraphs++;
+			}
+		}
+		
+		//Is a complete verification of the provided data possible?
+		if (parts.isEmpty()){
+			throw new Exception("Failed to verify: " +
+					"No signature statements found. " +
+					"Data seems to be unsigned or damaged/manipulated. ");
+		}
+		if (unsignedGraphs>0){
+			throw new Exception("Failed to verify: " +
+					unsignedGraphs+" unsigned graph(s) at root level detected. " +
+					"A successful verificaton of signed graphs would not ensure the integrity and authenticity of all data. ");
+		}
+		return parts;
+	}
+	
+	/**
+	 * Counts the signature graphs at root level of a graph collection
+	 * 
+	 * @param gc  {@link GraphCollection}
+	 * @return  number of signature graphs
+	 */
+	private static int countSignatureGraphs(GraphCollection gc){
+		int count=0;
+		for (NamedGraph g:gc.getGraphs()){
+			if (g.getDepth()!=-1 && isSignatureGraph(g)){
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Is a graph a signature graph? (at least "graphSigningMethod" statements must be present)
+	 * 
+	 * @param g  {@link NamedGraph}
+	 * @return  true if the graph contains a graph signing method, false otherwise
+	 */
+	private static boolean isSignatureGraph(NamedGraph g){
+		String w3ctype="<"+Ontology.getW3CSyntaxURI()+"type>";
+		String graphSigningMethod="<"+Ontology.getSigIri()+Ontology.getTypeGraphSigningMethod()+">";
+		for (Triple t:g.getTriples()){
+			if (t.getPredicate().equals(w3ctype) && t.getObject().equals(graphSigningMethod)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Are all signatures of a (multi-signature) graph collection valid? (see {@link #verifySignatures(GraphCollection, Collection)})
+	 * 
+	 * @param gc  signed {@link GraphCollection}
+	 * @param publicKeys  public keys for signature verification
+	 * @return  true if each signature is valid for any of the keys, false otherwise
+	 * @throws Exception  if verification failed
+	 */
+	public static boolean verifyAllSignatures(GraphCollection gc, Collection<? extends Key> publicKeys) throws Exception{
+		return VerificationResult.isVerified(verifySignatures(gc, publicKeys));
+	}
+	
+	/**
+	 * Is any signature of a (multi-signature) graph collection valid? (see {@link #verifySignatures(GraphCollection, Collection)})
+	 * 
+	 * @param gc  signed {@link GraphCollection}
+	 * @param publicKeys  public keys for signature verification
+	 * @return  true if at least one signature is valid for any of the keys, false otherwise
+	 * @throws Exception  if verification failed
+	 */
+	public static boolean verifyAnySignature(GraphCollection gc, Collection<? extends Key> publicKeys) throws Exception{
+		for (VerificationResult r:verifySignatures(gc, publicKeys)){
+			if (r.isVerified()){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Verify a graph collection and stop at the first failure
+	 * With tummarello-2005, MSG signatures are checked until the first invalid MSG is found
+	 * (in parallel mode by all threads of the worker pool, outstanding checks are cancelled then).
+	 * A missing or unused MSG signature gives a failed result if all MSGs before it are valid
+	 * (see {@link SignatureAlgorithmTummarello2005#verifyUntilFailure(GraphCollection, Key)}).
+	 * Other algorithms sign the whole graph collection, so the graph collection is verified.
+	 * 
+	 * @param gc  signed {@link GraphCollection} (see {@link #verify(GraphCollection, Key)})
+	 * @param publicKey a public key for signature verification
+	 * @return  failed result of the first invalid unit found or verified result for the graph collection
+	 * @throws Exception  if verification failed
+	 */
+	public static VerificationResult verifyUntilFailure(GraphCollection gc, Key publicKey) throws Exception{
+		//Remove signature graph and get signature data
+		ArrayList<SignatureData> signatures=removeSignatureGraphWithSignatures(gc);
+		gc.setSignature(signatures.get(0));
+		
+		SignatureAlgorithmInterface hashingAlgorithm=canonicalizeAndHash(gc, signatures);
+		if (hashingAlgorithm instanceof SignatureAlgorithmTummarello2005){
+			return ((SignatureAlgorithmTummarello2005)hashingAlgorithm).verifyUntilFailure(gc, publicKey);
+		}
+		boolean verified=verifyHashed(gc, hashingAlgorithm, signatures, publicKey);
+		return new VerificationResult(null, null, verified, verified ? null : "Invalid signature");
+	}
+	
+	/**
+	 * Verify only the parts of a graph collection which contain certain triples
+	 * With tummarello-2005, only the MSGs with these triples are verified (one result per MSG).
+	 * Triples which are not found or are not part of any MSG (e.g. reification statements) get a failed result each.
+	 * Other algorithms sign the whole graph collection, so the graph collection is verified (one result).
+	 * 
+	 * @param gc  signed {@link GraphCollection} (see {@link #verify(GraphCollection, Key)})
+	 * @param publicKey a public key for signature verification
+	 * @param triples  triples to verify
+	 * @return  verification results
+	 * @throws Exception  if verification failed
+	 */
+	public static ArrayList<VerificationResult> verifyTriples(GraphCollection gc, Key publicKey, Collection<Triple> triples) throws Exception{
+		ArrayList<SignatureData> signatures=new ArrayList<SignatureData>();
+		SignatureAlgorithmTummarello2005 tummarello=prepareSelectiveVerification(gc, signatures);
+		if (tummarello!=null){
+			return tummarello.verifyTriples(gc, publicKey, triples);
+		}
+		return verifyAll(gc, signatures, publicKey);
+	}
+	
+	/**
+	 * Verify only a named graph (and its sub graphs) of a graph collection
+	 * With tummarello-2005, only the MSGs of the graph are verified (one result per MSG).
+	 * Other algorithms sign the whole graph collection, so the graph collection is verified (one result).
+	 * 
+	 * @param gc  signed {@link GraphCollection} (see {@link #verify(GraphCollection, Key)})
+	 * @param publicKey a public key for signature verification
+	 * @param graphName  name of the named graph
+	 * @return  verification results
+	 * @throws Exception  if verification failed
+	 */
+	public static ArrayList<VerificationResult> verifyGraph(GraphCollection gc, Key publicKey, String graphName) throws Exception{
+		ArrayList<SignatureData> signatures=new ArrayList<SignatureData>();
+		SignatureAlgorithmTummarello2005 tummarello=prepareSelectiveVerification(gc, signatures);
+		if (tummarello!=null){
+			return tummarello.verifyGraph(gc, publicKey, graphName);
+		}
+		return verifyAll(gc, signatures, publicKey);
+	}
+	
+	/**
+	 * Removes the signature graph and gets the algorithm for selective verification
+	 * 
+	 * @param gc  signed {@link GraphCollection}
+	 * @param signatures  list the signature data of all signatures is added to
+	 * @return  tummarello-2005 algorithm or null if the graph collection has been signed with another algorithm
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	private static SignatureAlgorithmTummarello2005 prepareSelectiveVerification(GraphCollection gc, ArrayList<SignatureData> signatures) throws Exception{
+		signatures.addAll(removeSignatureGraphWithSignatures(gc));
+		SignatureData sigData=signatures.get(0);
+		gc.setSignature(sigData);
+		
+		SignatureAlgorithmTummarello2005 tummarello=new SignatureAlgorithmTummarello2005();
+		String name=tummarello.getName();
+		if ( (Ontology.getCanonicalizationPrefix()+name).equals( sigData.getCanonicalizationMethod() )
+				&& (Ontology.getDigestPrefix()+name).equals( sigData.getGraphDigestMethod() ) ){
+			return tummarello;
+		}
+		return null;
+	}
+	
+	/**
+	 * Verify a whole graph collection whose signature graph has been removed
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data
+	 * @param signatures  signature data of all signatures of the signature graph
+	 * @param publicKey a public key for signature verification
+	 * @return  one result for the whole graph collection
+	 * @throws Exception  if full verification failed
+	 */
+	private static ArrayList<VerificationResult> verifyAll(GraphCollection gc, ArrayList<SignatureData> signatures, Key publicKey) throws Exception{
+		boolean verified=verifySigned(gc, signatures, publicKey);
+		ArrayList<VerificationResult> results=new ArrayList<VerificationResult>(1);
+		results.add(new VerificationResult(null, null, verified, verified ? null : "Invalid signature"));
+		return results;
+	}
+	
+	/**
+	 * Removes the signature graph of a signed graph collection
+	 * The signature statements are removed and the children of the signature graph become the new root graphs.
+	 * Other statements of the signature graph are moved to a new root graph.
+	 * Used for verification and to sign a signed graph collection again.
+	 * 
+	 * @param gc  signed {@link GraphCollection} (must contain just a signature graph at root level and nothing else)
+	 * @return  signature data of the removed signature graph (first signature of a multi-signature graph)
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	public static SignatureData removeSignatureGraph(GraphCollection gc) throws Exception {
+		return removeSignatureGraphWithSignatures(gc).get(0);
+	}
+	
+	/**
+	 * Removes the signature graph of a signed graph collection (see {@link #removeSignatureGraph(GraphCollection)})
+	 * A multi-signature graph contains several signatures of the same hash, each with its own graph signing method
+	 * (see {@link de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Assembler#assemble(GraphCollection, String, java.util.List)}).
+	 * 
+	 * @param gc  signed {@link GraphCollection} (must contain just a signature graph at root level and nothing else)
+	 * @return  signature data of all signatures of the removed signature graph (in order of appearance)
+	 * @throws Exception  if there is no signature graph or if there is other data at root level
+	 */
+	public static ArrayList<SignatureData> removeSignatureGraphWithSignatures(GraphCollection gc) throws Exception {
 		//Ontology Data
 		Ontology o=new Ontology();
 		String sigIri=Ontology.getSigIri();		//Get signature IRI
@@ -80,6 +619,8 @@ public class SignatureVerifier {
 		String w3ctype="<"+Ontology.getW3CSyntaxURI()+"type>";
 		NamedGraph newRoot=null;
 		LinkedList<Triple> sigList=new LinkedList<Triple>();
+		LinkedHashSet<String> newSignatureIDs=null;
+		LinkedHashSet<String> newGraphSigningMethodIDs=null;
 		int signedGraphs=0;
 		int unsignedGraphs=0;
 		for (NamedGraph g:gc.getGraphs()){
@@ -93,8 +634,8 @@ public class SignatureVerifier {
 				
 			}else{
 				//Search for signature data and cache all triples which might be part of the signature in a list
-				String signatureID="";
-				String graphSigningMethodID="";
+				LinkedHashSet<String> signatureIDs=new LinkedHashSet<String>();
+				LinkedHashSet<String> graphSigningMethodIDs=new LinkedHashSet<String>();
 				LinkedList<Triple> tempSigList=new LinkedList<Triple>();
 				for (Triple t:g.getTriples()){
 					//Signature statements contain the signature IRI either as part of the predicate or object
@@ -107,9 +648,9 @@ public class SignatureVerifier {
 							//Detect types "Signature" and "graphSigningMethod" which link to signature statements
 							if (t.getPredicate().equals(w3ctype)){
 								if (t.getObject().equals("<"+Ontology.getSigIri()+Ontology.getTypeSignature()+">")){
-									signatureID=t.getSubject();
+									signatureIDs.add(t.getSubject());
 								} else if (t.getObject().equals("<"+Ontology.getSigIri()+Ontology.getTypeGraphSigningMethod()+">")){
-									graphSigningMethodID=t.getSubject();
+									graphSigningMethodIDs.add(t.getSubject());
 								}
 							}
 						}
@@ -117,7 +658,7 @@ public class SignatureVerifier {
 				}
 				
 				//Is this a signature graph? (at least "graphSigningMethod" statements must be present)
-				if ( graphSigningMethodID.length()>0 ){
+				if ( !graphSigningMethodIDs.isEmpty() ){
 					//Yes, this is a signature graph
 					signedGraphs++;
 					
@@ -126,10 +667,12 @@ public class SignatureVerifier {
 						newRoot=g;
 						sigList=new LinkedList<Triple>();
 						for (Triple t:tempSigList){
-							if ( t.getSubject().equals(signatureID) || t.getSubject().equals(graphSigningMethodID) ){
+							if ( signatureIDs.contains(t.getSubject()) || graphSigningMethodIDs.contains(t.getSubject()) ){
 								sigList.add(t);
 							}
 						}
+						newSignatureIDs=signatureIDs;
+						newGraphSigningMethodIDs=graphSigningMethodIDs;
 					}	
 				}else{
 					//This is no signature graph
@@ -151,7 +694,7 @@ public class SignatureVerifier {
 			//No, there are multiple signature graphs. Which one to check?!
 			throw new Exception("Failed to verify: " +
 					signedGraphs+" signed graphs at root level detected. " +
-					"Do not know which one to verify. ");
+					"Do not know which one to verify (see verifySignatureGraphs). ");
 		}
 		if (unsignedGraphs>0){
 			//No, unsigned graphs at root level.
@@ -161,8 +704,36 @@ public class SignatureVerifier {
 		}
 		
 		//Handle Signature Triples and get signature data
-		SignatureData sigData=o.getSignatureDataFromTriples(sigList);
-		gc.setSignature(sigData);
+		ArrayList<SignatureData> signatures=new ArrayList<SignatureData>();
+		if (newSignatureIDs.size()<=1){
+			signatures.add(o.getSignatureDataFromTriples(sigList));
+		}else{
+			//Multi-signature graph: statements of each signature and its graph signing method
+			String gsmPredicate="<"+sigIri+"hasGraphSigningMethod>";
+			for (String signatureID:newSignatureIDs){
+				String graphSigningMethodID=null;
+				for (Triple t:sigList){
+					if (t.getSubject().equals(signatureID) && t.getPredicate().equals(gsmPredicate)
+							&& newGraphSigningMethodIDs.contains(t.getObject())){
+						graphSigningMethodID=t.getObject();
+					}
+				}
+				if (graphSigningMethodID==null){
+					if (newGraphSigningMethodIDs.size()>1){
+						throw new Exception("Failed to verify: " +
+								"No graph signing method found for signature "+signatureID+". ");
+					}
+					graphSigningMethodID=newGraphSigningMethodIDs.iterator().next();
+				}
+				LinkedList<Triple> signatureTriples=new LinkedList<Triple>();
+				for (Triple t:sigList){
+					if (t.getSubject().equals(signatureID) || t.getSubject().equals(graphSigningMethodID)){
+						signatureTriples.add(t);
+					}
+				}
+				signatures.add(new Ontology().getSignatureDataFromTriples(signatureTriples));
+			}
+		}
 		
 		//Kill signature triples
 		for (Triple kill:sigList){
@@ -178,41 +749,7 @@ public class SignatureVerifier {
         }
         gc.updateDepths();
         
-        //Get Algorithm List
-        LinkedList<SignatureAlgorithmInterface> list=SignatureAlgorithmList.getList();	//List of all existing signature algorithms
-        
-        //Get algorithms
-        SignatureAlgorithmInterface canonicalizationAlgorithm=null;				//Algorithm used for canonicalization
-        SignatureAlgorithmInterface hashingAlgorithm=null;						//Algorithm used for hashing
-        for (SignatureAlgorithmInterface a:list){
-        	//Get canonicalization algorithm
-        	if ( (Ontology.getCanonicalizationPrefix()+a.getName()).equals( sigData.getCanonicalizationMethod() ) ){
-        		canonicalizationAlgorithm=a;
-        	}
-        	//Get hashing algorithm
-        	if ( (Ontology.getDigestPrefix()+a.getName()).equals( sigData.getGraphDigestMethod() ) ){
-        		hashingAlgorithm=a;
-        	}
-        }
-        
-        //Canonicalize
-        if (canonicalizationAlgorithm!=null){
-        	canonicalizationAlgorithm.canonicalize(gc);
-        	canonicalizationAlgorithm.postCanonicalize(gc);
-        }else{
-        	throw new Exception("No algorithm found for graph canoncialization method '"+sigData.getCanonicalizationMethod()+"'");
-        }
-        
-        //Hash
-        if (hashingAlgorithm!=null){
-        	hashingAlgorithm.hash(gc, sigData.getDigestGen().getAlgorithm().toLowerCase() );
-        	hashingAlgorithm.postHash(gc);
-        }else{
-        	throw new Exception("No algorithm found for graph digest method '"+sigData.getGraphDigestMethod()+"'");
-        }
-        
-        //Verify (use method of hashing algorithm)
-        return hashingAlgorithm.verify(gc, publicKey);
+        return signatures;
 	}
 	
 	/**
@@ -238,6 +775,7 @@ public class SignatureVerifier {
 		
 		//Clear graph data
 		g.setVariableHashes(null);
+		g.clearHashState();
 		if (g.getMSGSignatures()!=null){
 			g.getMSGSignatures().clear();
 		}
@@ -0,0 +1,97 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.Triple;
+
+/**
+ * Result of the verification of a single unit of a signed graph collection (see {@link SignatureVerifier})
+ * A unit is a MSG (tummarello-2005), a named graph or the whole graph collection.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class VerificationResult {
+	private String graphName;				//Name of the named graph of the unit (null for the whole graph collection)
+	private ArrayList<Triple> triples;		//Triples of the unit (null if the unit is a graph or the whole graph collection)
+	private boolean verified;				//Has the unit been verified successfully?
+	private String message;					//Reason why the unit has not been verified (null if verified)
+
+	//######################################################## Constructors
+
+	/**
+	 * Create new verification result
+	 *
+	 * @param graphName  name of the named graph of the unit (null for the whole graph collection)
+	 * @param triples  triples of the unit (null if the unit is a graph or the whole graph collection)
+	 * @param verified  has the unit been verified successfully?
+	 * @param message  reason why the unit has not been verified (null if verified)
+	 */
+	public VerificationResult(String graphName, ArrayList<Triple> triples, boolean verified, String message){
+		this.graphName=graphName;
+		this.triples=triples;
+		this.verified=verified;
+		this.message=message;
+	}
+
+	//######################################################## Getters
+
+	public String getGraphName() {
+		return graphName;
+	}
+
+	public ArrayList<Triple> getTriples() {
+		return triples;
+	}
+
+	public boolean isVerified() {
+		return verified;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	//######################################################## Helper functions
+
+	/**
+	 * Have all units been verified successfully?
+	 *
+	 * @param results  verification results
+	 * @return  true if all results are verified, false otherwise
+	 */
+	public static boolean isVerified(Collection<VerificationResult> results){
+		for (VerificationResult r:results){
+			if (!r.isVerified()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//######################################################## Java Functions
+
+	/**
+	 * Converts verification result to a string (used for printing and debugging)
+	 *
+	 * @return  string representation
+	 */
+	public String toString(){
+		String result=(verified ? "verified" : "failed");
+		if (graphName!=null){
+			result+=": graph "+graphName;
+		}else if (triples==null){
+			result+=": graph collection";
+		}
+		if (message!=null){
+			result+=" ("+message+")";
+		}
+		if (triples!=null){
+			for (Triple t:triples){
+				result+="\n"+t;
+			}
+		}
+		return result;
+	}
+
+}
@@ -1,17 +1,22 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm;
 
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
 
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GenSymCounter;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GraphBaseHasher;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.HashCombinator;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.Utf8Encoder;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
@@ -26,8 +31,57 @@ import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
  */
 public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterface {
 	private int bnCount;																	//Count of blank nodes (substituteBlankNodes)
-	private HashMap<String,Integer> lookupTable;											//Table holds new names for blank nodes (nondeterministicPreCanonicalization)
+	private int[] lookupTable;																//Table holds new label numbers for blank node keys, 0 = none (nondeterministicPreCanonicalization)
 	private GenSymCounter counter;															//Blank node symbol generator counter (nondeterministicPreCanonicalization)	
+	private HashMap<String,Integer> keyIds;													//Keys of blank node identifiers and annotations (nondeterministicPreCanonicalization)
+	private ArrayList<String> keyNames;														//Strings of keys (inverse of keyIds)
+	private int[] labelKeys;																//Keys of labels (by label number)
+	private String[] labelNames;															//Label strings which have been created already (by label number)
+	private int labelWidth;																	//Number of digits of labels
+	private int emptyKey;																	//Key of the empty annotation
+	private int lookupKey;																	//Key used for lookup table entries of new c14n triples (Step E)
+	private String labelPrefix;																//Prefix of blank node labels (default: "_:g")
+	private boolean reserveLabels;															//Size the counter for all labelling steps (see constructor)
+	
+	private static final int[] POWERS_OF_TEN={1,10,100,1000,10000,100000,1000000,10000000,100000000,1000000000};
+	
+	//Compares labelling triples like their strings would be compared
+	private final Comparator<LabelTriple> labelTripleComparator=new Comparator<LabelTriple>(){
+		public int compare(LabelTriple a, LabelTriple b){
+			return compareLabelTriples(a, b);
+		}
+	};
+	
+	//######################################################## Constructors
+	
+	public SignatureAlgorithmCarroll2003(){
+		this("_:g");
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param labelPrefix  prefix of new blank node labels (labels consist of the prefix and a padded number)
+	 */
+	public SignatureAlgorithmCarroll2003(String labelPrefix){
+		this(labelPrefix, false);
+	}
+	
+	/**
+	 * Constructor
+	 * By default, the label counter is sized with the number of blank nodes of Step A (labels of carroll-2003 depend on it).
+	 * Step D continues counting after Step A and Step F labels the nodes added in Step E as well, so the counter can overflow
+	 * for graphs with hard to label nodes. Reserved labels size the counter for all steps (labels get more digits).
+	 * With reserved labels, blank nodes which are still unlabelled after Step F cause an exception instead of
+	 * remaining "~" placeholders in the canonical graph (such graphs could not be verified).
+	 * 
+	 * @param labelPrefix  prefix of new blank node labels (labels consist of the prefix and a padded number)
+	 * @param reserveLabels  size the counter for all labelling steps (twice the number of blank nodes of Step A)?
+	 */
+	public SignatureAlgorithmCarroll2003(String labelPrefix, boolean reserveLabels){
+		this.labelPrefix=labelPrefix;
+		this.reserveLabels=reserveLabels;
+	}
 	
 	//######################################################## Canonicalize
 	
@@ -59,6 +113,153 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		}
 	}
 	
+	/**
+	 * Creates the labelling state for triples with blank nodes.
+	 * Blank node identifiers and annotations get integer keys which are used instead of strings during all labelling steps.
+	 * 
+	 * @param triples  triples with blank nodes
+	 * @return  labelling triples in the same order
+	 */
+	private ArrayList<LabelTriple> createLabelTriples(ArrayList<Triple> triples){
+		keyIds=new HashMap<String,Integer>();
+		keyNames=new ArrayList<String>();
+		emptyKey=internKey("");
+		lookupKey=internKey("x");
+		ArrayList<LabelTriple> labelTriples=new ArrayList<LabelTriple>(triples.size());
+		for(Triple t:triples) {
+			LabelTriple lt=new LabelTriple(t, t.getSubject(), 0, t.getObject(), 0, internKey(t.getAnnotation()));
+			if (lt.subject.startsWith("_")){
+				internKey(lt.subject);
+			}
+			if (lt.object.startsWith("_")){
+				internKey(lt.object);
+			}
+			labelTriples.add(lt);
+		}
+		return labelTriples;
+	}
+	
+	/**
+	 * Gets the key of a string or adds a new key for it
+	 * 
+	 * @param name  blank node identifier or annotation
+	 * @return  key of the string
+	 */
+	private int internKey(String name){
+		Integer key=keyIds.get(name);
+		if (key==null){
+			key=keyNames.size();
+			keyIds.put(name, key);
+			keyNames.add(name);
+		}
+		return key;
+	}
+	
+	/**
+	 * Creates the counter, the label keys and the lookup table for a number of blank nodes.
+	 * A label gets the key of an identical identifier string if there is one, so labels and identifiers
+	 * with equal strings are the same blank node (as they would be with string identifiers).
+	 * 
+	 * @param maxValue  number of blank nodes (highest label number)
+	 */
+	private void createLabels(int maxValue){
+		counter=new GenSymCounter(maxValue);
+		labelWidth=counter.getLength();
+		labelNames=new String[maxValue+1];
+		int keyCount=keyNames.size();
+		labelKeys=new int[maxValue+1];
+		for (int i=1; i<=maxValue; i++){
+			labelKeys[i]=keyCount+i;
+		}
+		for (int key=0; key<keyCount; key++){
+			int label=parseLabel(keyNames.get(key));
+			if (label>0){
+				labelKeys[label]=key;
+			}
+		}
+		lookupTable=new int[keyCount+maxValue+1];
+	}
+	
+	/**
+	 * Gets the label number of a label string
+	 * 
+	 * @param name  string to examine
+	 * @return  label number or 0 if the string is no label
+	 */
+	private int parseLabel(String name){
+		if (name.length()!=labelPrefix.length()+labelWidth || !name.startsWith(labelPrefix)){
+			return 0;
+		}
+		int label=0;
+		for (int i=labelPrefix.length(); i<name.length(); i++){
+			char c=name.charAt(i);
+			if (c<'0' || c>'9'){
+				return 0;
+			}
+			label=label*10+(c-'0');
+		}
+		return label<labelKeys.length ? label : 0;
+	}
+	
+	/**
+	 * Gets the key of a blank node identifier (string or label)
+	 * 
+	 * @param name  blank node identifier string (used if label is 0)
+	 * @param label  label number
+	 * @return  key or -1 if the identifier has no key
+	 */
+	private int getKey(String name, int label){
+		if (label!=0){
+			return labelKeys[label];
+		}
+		Integer key=keyIds.get(name);
+		if (key!=null){
+			return key;
+		}
+		label=parseLabel(name);
+		return label>0 ? labelKeys[label] : -1;
+	}
+	
+	/**
+	 * Gets the string of a key
+	 * 
+	 * @param key  key of an identifier, annotation or label
+	 * @return  string of the key
+	 */
+	private String getKeyName(int key){
+		if (key<keyNames.size()){
+			return keyNames.get(key);
+		}
+		return getLabelName(key-keyNames.size());
+	}
+	
+	/**
+	 * Gets the string of a label (label prefix followed by the padded label number)
+	 * Each label string is only created once.
+	 * 
+	 * @param label  label number
+	 * @return  label string
+	 */
+	private String getLabelName(int label){
+		String name=labelNames[label];
+		if (name==null){
+			name=labelPrefix+counter.createSymStringFromInt(label);
+			labelNames[label]=name;
+		}
+		return name;
+	}
+	
+	/**
+	 * Gets the new label of a blank node identifier from the lookup table
+	 * 
+	 * @param name  blank node identifier
+	 * @return  label number or 0 if there is no entry for the identifier
+	 */
+	private int lookupLabel(String name){
+		int key=getKey(name, 0);
+		return key>=0 ? lookupTable[key] : 0;
+	}
+	
 	/**
 	 * Prepares blank nodes by replacing them with "~".
 	 * Counts them and puts the original identifiers into annotations.
@@ -66,55 +267,174 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 	 * 
 	 * @param triples  triples to prepare
 	 */
-	private void substituteBlankNodes(ArrayList<Triple> triples){
+	private void substituteBlankNodes(ArrayList<LabelTriple> triples){
 		//Replace blank nodes with "~" so blank node identifiers are ignored during sorting
-		//Save their original names as annotation (annotations will be ignored during sorting as well)
+		//Save their original keys as annotation (annotations will be ignored during sorting as well)
 		bnCount = 0;
-		for(Triple t:triples) {
-			if (t.getSubject().startsWith("_")){
+		for(LabelTriple t:triples) {
+			if (t.isBlankNode(Triple.subject)){
 				//Subject is a blank node - replace with "~"
-				t.setAnnotation(t.getSubject());
-				t.setSubject("~");
+				t.annotation=getKey(t.subject, t.subjectLabel);
+				t.subject="~";
+				t.subjectLabel=0;
 				//Increase counter
-				if (t.getObject().startsWith("_")){
+				if (t.isBlankNode(Triple.object)){
 					bnCount+=2;
 				}else{
 					bnCount++;
 				}
-			}else if (t.getObject().startsWith("_")){
+			}else if (t.isBlankNode(Triple.object)){
 				//Object is a blank node - replace with "~"
-				t.setAnnotation(t.getObject());
-				t.setObject("~");
+				t.annotation=getKey(t.object, t.objectLabel);
+				t.object="~";
+				t.objectLabel=0;
 				//Increase counter
 				bnCount++;
 			}
 		}
 	}
 	
+	/**
+	 * Splits triples into ground triples and triples which take part in blank node labelling.
+	 * A triple takes part in labelling if its subject or object is a blank node (or the "~" placeholder).
+	 * Both lists keep the order of the source list.
+	 * 
+	 * @param triples  source triples
+	 * @param groundTriples  list which receives the ground triples (will be cleared first)
+	 * @param bnTriples  list which receives the triples with blank nodes (will be cleared first)
+	 */
+	private void splitTriples(ArrayList<Triple> triples, ArrayList<Triple> groundTriples, ArrayList<Triple> bnTriples){
+		groundTriples.clear();
+		bnTriples.clear();
+		for(Triple t:triples) {
+			String subject=t.getSubject();
+			String object=t.getObject();
+			if (subject.startsWith("_") || object.startsWith("_") || subject.equals("~") || object.equals("~")){
+				bnTriples.add(t);
+			}else{
+				groundTriples.add(t);
+			}
+		}
+	}
+	
+	/**
+	 * Merges sorted ground triples and sorted triples with blank nodes into one sorted list.
+	 * Triples of both lists never have equal subject, predicate and object, so the result
+	 * is the same as sorting all triples at once.
+	 * 
+	 * @param groundTriples  sorted ground triples
+	 * @param bnTriples  sorted triples with blank nodes
+	 * @param triples  list which receives the merged triples (will be cleared first)
+	 */
+	private void mergeTriples(ArrayList<Triple> groundTriples, ArrayList<Triple> bnTriples, ArrayList<Triple> triples){
+		triples.clear();
+		triples.ensureCapacity(groundTriples.size()+bnTriples.size());
+		int i=0;
+		int j=0;
+		while (i<groundTriples.size() && j<bnTriples.size()){
+			if (groundTriples.get(i).compareTo(bnTriples.get(j))<=0){
+				triples.add(groundTriples.get(i++));
+			}else{
+				triples.add(bnTriples.get(j++));
+			}
+		}
+		while (i<groundTriples.size()){
+			triples.add(groundTriples.get(i++));
+		}
+		while (j<bnTriples.size()){
+			triples.add(bnTriples.get(j++));
+		}
+	}
+	
+	/**
+	 * Writes labels and annotations back into the triples (label strings are created here)
+	 * 
+	 * @param labelTriples  labelling triples
+	 * @return  triples in the order of the labelling triples
+	 */
+	private ArrayList<Triple> materialize(ArrayList<LabelTriple> labelTriples){
+		ArrayList<Triple> triples=new ArrayList<Triple>(labelTriples.size());
+		for(LabelTriple lt:labelTriples) {
+			Triple t=lt.triple;
+			t.setSubject(lt.subjectLabel!=0 ? getLabelName(lt.subjectLabel) : lt.subject);
+			t.setObject(lt.objectLabel!=0 ? getLabelName(lt.objectLabel) : lt.object);
+			t.setAnnotation(getKeyName(lt.annotation));
+			triples.add(t);
+		}
+		return triples;
+	}
+	
+	/**
+	 * Checks if any triple of a list has a certain predicate
+	 * 
+	 * @param triples  triples to examine
+	 * @param predicate  predicate to look for
+	 * @return  true if at least one triple has the predicate
+	 */
+	private boolean containsGroundPredicate(ArrayList<Triple> triples, String predicate){
+		for(Triple t:triples) {
+			if (t.getPredicate().equals(predicate)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if any triple of a list has the "~" placeholder as subject or object (labelled like a blank node)
+	 * 
+	 * @param triples  triples to examine
+	 * @return  true if at least one triple contains the placeholder
+	 */
+	private boolean containsPlaceholder(ArrayList<Triple> triples){
+		for(Triple t:triples) {
+			if (t.getSubject().equals("~") || t.getObject().equals("~")){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if any labelling triple of a list has a certain predicate
+	 * 
+	 * @param triples  labelling triples to examine
+	 * @param predicate  predicate to look for
+	 * @return  true if at least one triple has the predicate
+	 */
+	private boolean containsPredicate(ArrayList<LabelTriple> triples, String predicate){
+		for(LabelTriple t:triples) {
+			if (t.triple.getPredicate().equals(predicate)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Performs one-step deterministic labeling.
 	 * Note: Call substituteBlankNodes before calling this function the first time.
+	 * Ground triples never change during labeling, so only triples with blank nodes are passed (see {@link #splitTriples}).
 	 *
 	 * Steps:
 	 * 1) Sort all triples
 	 * 2) Find and assign new identifiers for blank nodes
 	 * 3) Sort all triples again
 	 * 
-	 * @paramg g  {@link NamedGraph} to canonicalize
+	 * @param triples  triples with blank nodes to label
 	 * @throws Exception
 	 */
-	private void oneStepDeterministicLabelling(NamedGraph g) throws Exception{
+	private void oneStepDeterministicLabelling(ArrayList<LabelTriple> triples) throws Exception{
 		//Sort triples
-		ArrayList<Triple> triples=g.getTriples();
-		Collections.sort(triples);
+		Collections.sort(triples, labelTripleComparator);
 		
 		//Find new names for "~" (formerly blank nodes)
 		//This is done by iterating over all triples TWICE
-		// - First iteration: Skip triples which are equal to the previous or next triple, rename "~" by enumerating them (new names: "_:gX")
+		// - First iteration: Skip triples which are equal to the previous or next triple, rename "~" by enumerating them (new labels: X for "_:gX")
 		// - Second iteration: Check all triples, rename "~" if their old name has been found and replaced in the first iteration already
 		int tripleCount = triples.size();											//Number of triples
-		String bnName;																//Blank node name
-		Triple current;																//Triple which will be examined
+		int bnName;																	//Blank node key
+		LabelTriple current;														//Triple which will be examined
 		//Iterate over all triples twice
 		for (int i=0; i<2; i++){		
 			//Iterate over all triples			
@@ -127,12 +447,12 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 				//Continue with next triple if this is the case
 				if (i == 0){
 					if (j > 0){
-						if ( current.isSPOequal( triples.get(j-1) ) ){
+						if ( compareLabelTriples( current, triples.get(j-1) )==0 ){
 							continue;
 						}
 					}
 					if ((j+1) < tripleCount){
-						if ( current.isSPOequal( triples.get(j+1) ) ){
+						if ( compareLabelTriples( current, triples.get(j+1) )==0 ){
 							continue;
 						}
 					}
@@ -143,22 +463,22 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 				// 2) pos = Triple.subject
 				int pos = Triple.object;
 				while (true){
-					if (current.getByIndex(pos).equals("~")){
-						//Get original blank node identifier from annotation
-						bnName = current.getAnnotation();
+					if (current.isPlaceholder(pos)){
+						//Get original blank node key from annotation
+						bnName = current.annotation;
 						//Is blank node in lookup table?
-						Integer lookupName = lookupTable.get(bnName);
-						if (lookupName != null){
+						int lookupName = lookupTable[bnName];
+						if (lookupName != 0){
 							//Yes, use value from lookup table for name
-							current.setByIndex(pos, "_:g"+counter.createSymStringFromInt(lookupName));
-							current.setAnnotation("");
+							current.setLabel(pos, lookupName);
+							current.annotation=emptyKey;
 							bnCount--;
 						}else if (i == 0){
 							//No, generate a new name and put it into the lookup table
-							current.setByIndex(pos, "_:g"+counter.getNewSym());
-							current.setAnnotation("");
+							current.setLabel(pos, counter.getNewValue());
+							current.annotation=emptyKey;
 							bnCount--;
-							lookupTable.put(bnName,counter.getCurrentValue());
+							lookupTable[bnName]=counter.getCurrentValue();
 						}
 					}
 					//Replace subject after object or end loop if subject has been replaced already
@@ -173,7 +493,73 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		}
 
 		//Sort triples again (with new deterministic blank node identifiers)
-		Collections.sort(triples);	
+		Collections.sort(triples, labelTripleComparator);
+	}
+	
+	/**
+	 * Compares two labelling triples like {@link Triple#compareTo} would compare their strings
+	 * 
+	 * @param a  first triple
+	 * @param b  second triple
+	 * @return  value expressing relation of the triples
+	 */
+	private int compareLabelTriples(LabelTriple a, LabelTriple b){
+		int ret=compareTerms(a.subject, a.subjectLabel, b.subject, b.subjectLabel);
+		if (ret!=0){
+			return ret;
+		}
+		ret=a.triple.getPredicate().compareTo(b.triple.getPredicate());
+		if (ret!=0){
+			return ret;
+		}
+		return compareTerms(a.object, a.objectLabel, b.object, b.objectLabel);
+	}
+	
+	/**
+	 * Compares two terms (strings or labels) like {@link String#compareTo} would compare their strings
+	 * All labels have the same length, so two labels are compared by their numbers.
+	 * 
+	 * @param a  first term string (used if aLabel is 0)
+	 * @param aLabel  first term label number
+	 * @param b  second term string (used if bLabel is 0)
+	 * @param bLabel  second term label number
+	 * @return  value expressing relation of the terms
+	 */
+	private int compareTerms(String a, int aLabel, String b, int bLabel){
+		if (aLabel!=0){
+			if (bLabel!=0){
+				return Integer.compare(aLabel, bLabel);
+			}
+			return compareLabel(aLabel, b);
+		}else if (bLabel!=0){
+			return -compareLabel(bLabel, a);
+		}
+		return a.compareTo(b);
+	}
+	
+	/**
+	 * Compares a label with a string without creating the label string
+	 * 
+	 * @param label  label number
+	 * @param s  string
+	 * @return  value expressing relation of the label string and the string
+	 */
+	private int compareLabel(int label, String s){
+		int prefixLength=labelPrefix.length();
+		int length=prefixLength+labelWidth;
+		int n=Math.min(length, s.length());
+		for (int i=0; i<n; i++){
+			char c;
+			if (i<prefixLength){
+				c=labelPrefix.charAt(i);
+			}else{
+				c=(char)('0'+(label/POWERS_OF_TEN[length-1-i])%10);
+			}
+			if (c!=s.charAt(i)){
+				return c-s.charAt(i);
+			}
+		}
+		return length-s.length();
 	}
 	
 	/**
@@ -189,6 +575,10 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 	 * 
 	 * Comments "(Step A)" to "(Step F)" in code below refer to the algorithm description of Carroll
 	 * 
+	 * Ground triples are sorted only once. Triples with blank nodes are labeled and sorted separately
+	 * and both parts are merged into the triple list of the graph afterwards.
+	 * During labelling blank nodes are integer keys and labels; label strings are only written into the triples at the end.
+	 * 
 	 * @param g  {@link NamedGraph} which will be canonicalized
 	 * @throws Exception
 	 */
@@ -196,56 +586,91 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		//Get triples
 		ArrayList<Triple> triples=g.getTriples();
 		
+		//Ground graphs have nothing to label: sorting gives the same result as all labelling steps
+		if (!g.scanBlankNodes() && !containsPlaceholder(triples)){
+			Collections.sort(triples);
+			return;
+		}
+		
 		//Get C14N Predicate
 		String c14n=Ontology.getC14NPredicate();
 		
+		//Split triples: ground triples are sorted once, only triples with blank nodes are labeled
+		ArrayList<Triple> groundTriples=new ArrayList<Triple>();
+		ArrayList<Triple> bnTriples=new ArrayList<Triple>();
+		splitTriples(triples, groundTriples, bnTriples);
+		Collections.sort(groundTriples);
+		ArrayList<LabelTriple> labelTriples=createLabelTriples(bnTriples);
+		
 		//Count and substitute blank nodes
-		substituteBlankNodes(triples);
+		substituteBlankNodes(labelTriples);
 		
 		//Perform a one-step deterministic labeling (Step A)
-		lookupTable = new HashMap<String,Integer>();
-		counter=new GenSymCounter(bnCount);
-		oneStepDeterministicLabelling(g);
+		createLabels(reserveLabels ? 2*bnCount : bnCount);
+		oneStepDeterministicLabelling(labelTriples);
 		canonicalizeGraphNames(g);
 		canonicalizeReifications(g);
 		
 		//Stop if there are no hard to label nodes (Step B)
 		if ( bnCount==0 ){
+			mergeTriples(groundTriples, materialize(labelTriples), triples);
 			return;
 		}
 		
 		//Delete triples with predicate "c14n:true" (Step C)
-		for(Triple t:triples) {
-			if (t.getPredicate().equals(c14n)){
-				triples.remove(t);
+		//Deletion works on the complete sorted triple list
+		if (containsPredicate(labelTriples, c14n) || containsGroundPredicate(groundTriples, c14n)){
+			bnTriples=materialize(labelTriples);
+			mergeTriples(groundTriples, bnTriples, triples);
+			Iterator<Triple> tripleIt=triples.iterator();
+			while (tripleIt.hasNext()){
+				if (tripleIt.next().getPredicate().equals(c14n)){
+					tripleIt.remove();
+				}
+			}
+			splitTriples(triples, groundTriples, bnTriples);
+			//Keep labelling triples of remaining triples only
+			Set<Triple> remaining=Collections.newSetFromMap(new IdentityHashMap<Triple,Boolean>());
+			remaining.addAll(bnTriples);
+			Iterator<LabelTriple> it=labelTriples.iterator();
+			while (it.hasNext()){
+				if (!remaining.contains(it.next().triple)){
+					it.remove();
+				}
 			}
 		}
 		
 		//Perform another one-step deterministic labeling (Step D)
-		substituteBlankNodes(triples);		
-		oneStepDeterministicLabelling(g);
+		substituteBlankNodes(labelTriples);		
+		oneStepDeterministicLabelling(labelTriples);
 		canonicalizeGraphNames(g);
 		canonicalizeReifications(g);
 		
 		//Handle remaining hard to label nodes by adding new nodes (Step E)
-		lookupTable.clear();
+		Arrays.fill(lookupTable, 0);
 		counter.reset();
-		ArrayList<Triple> newTriples = new ArrayList<Triple>();
-		for(Triple t:triples) {
+		ArrayList<LabelTriple> newTriples = new ArrayList<LabelTriple>();
+		for(LabelTriple t:labelTriples) {
 			//Object and subject replacement - two iterations in while loop:
 			// 1) pos = Triple.object
 			// 2) pos = Triple.subject
 			int pos = Triple.object;
 			while (true){
-				if (t.getByIndex(pos).equals("~")){
-					//Get original blank node identifier from annotation
-					String bnName = t.getAnnotation();
+				if (t.isPlaceholder(pos)){
+					//Get original blank node key from annotation
+					int bnName = t.annotation;
 					//Is blank node in lookup table?
-					Integer lookupName = lookupTable.get(bnName);
-					if (lookupName == null){
+					if (lookupTable[bnName] == 0){
 						//No, generate a new triple
-						newTriples.add( new Triple(bnName, c14n, "\""+counter.getNewSym()+"\"") );
-						lookupTable.put("x",counter.getCurrentValue());
+						String bnString=getKeyName(bnName);
+						String literal="\""+counter.getNewSym()+"\"";
+						Triple newTriple=new Triple(bnString, c14n, literal);
+						if (bnName<keyNames.size()){
+							newTriples.add( new LabelTriple(newTriple, bnString, 0, literal, 0, emptyKey) );
+						}else{
+							newTriples.add( new LabelTriple(newTriple, null, bnName-keyNames.size(), literal, 0, emptyKey) );
+						}
+						lookupTable[lookupKey]=counter.getCurrentValue();
 					}
 				}
 				//Replace subject after object or end loop if subject has been replaced already
@@ -256,20 +681,26 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 				}
 			}
 		}
-		for (Triple addNew:newTriples){
-			triples.add(addNew);
+		for (LabelTriple addNew:newTriples){
+			labelTriples.add(addNew);
 		}
 		canonicalizeGraphNames(g);
 		canonicalizeReifications(g);
 		
 		//Perform another one-step deterministic labeling (Step F)
-		lookupTable.clear();
+		Arrays.fill(lookupTable, 0);
 		counter.reset();
-		substituteBlankNodes(triples);
-		oneStepDeterministicLabelling(g);
+		substituteBlankNodes(labelTriples);
+		oneStepDeterministicLabelling(labelTriples);
 		canonicalizeGraphNames(g);
 		canonicalizeReifications(g);
 		
+		//Merge ground triples and labeled triples into the triple list of the graph
+		mergeTriples(groundTriples, materialize(labelTriples), triples);
+		if (reserveLabels && containsPlaceholder(triples)){
+			throw new Exception("Blank nodes could not be labelled (hard to label blank nodes remain after Step F)");
+		}
+		
 		//Sort sub graphs
 		Collections.sort(g.getChildren());
 	}
@@ -293,9 +724,9 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		for (NamedGraph g:rootGraph.getChildren()){
 			//Only care about graphs with blank nodes
 			if (g.getName().startsWith("_")){
-				Integer lookupName = lookupTable.get(g.getName());
-				if (lookupName!=null){
-					g.setName("_:g"+counter.createSymStringFromInt(lookupName));
+				int lookupName = lookupLabel(g.getName());
+				if (lookupName!=0){
+					g.setName(getLabelName(lookupName));
 				}
 			}
 		}
@@ -315,9 +746,9 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 			for (String[] sig:sigs){
 				for (int i=0; i<=2; i+=2){
 					if (sig[i].startsWith("_")){
-						Integer lookupName = lookupTable.get(sig[i]);
-						if (lookupName!=null){
-							sig[i]="_:g"+counter.createSymStringFromInt(lookupName);
+						int lookupName = lookupLabel(sig[i]);
+						if (lookupName!=0){
+							sig[i]=getLabelName(lookupName);
 						}
 					}
 				}
@@ -325,6 +756,71 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		}
 	}
 	
+	/**
+	 * Triple with blank nodes during labelling.
+	 * Subject and object are either a string (identifier, "~" or any other term) or a label number (label prefix followed by the padded number).
+	 * The annotation is the key of the saved blank node identifier.
+	 */
+	private static class LabelTriple {
+		private Triple triple;														//Source triple (written back by materialize)
+		private String subject;														//Subject string (only used if subjectLabel is 0)
+		private int subjectLabel;													//Subject label number (0 = no label)
+		private String object;														//Object string (only used if objectLabel is 0)
+		private int objectLabel;													//Object label number (0 = no label)
+		private int annotation;														//Annotation key
+		
+		private LabelTriple(Triple triple, String subject, int subjectLabel, String object, int objectLabel, int annotation){
+			this.triple=triple;
+			this.subject=subject;
+			this.subjectLabel=subjectLabel;
+			this.object=object;
+			this.objectLabel=objectLabel;
+			this.annotation=annotation;
+		}
+		
+		/**
+		 * Is subject/object a blank node (label or identifier starting with "_")?
+		 * 
+		 * @param pos  Triple.subject or Triple.object
+		 * @return  true if blank node
+		 */
+		private boolean isBlankNode(int pos){
+			if (pos==Triple.subject){
+				return subjectLabel!=0 || subject.startsWith("_");
+			}
+			return objectLabel!=0 || object.startsWith("_");
+		}
+		
+		/**
+		 * Is subject/object the "~" placeholder?
+		 * 
+		 * @param pos  Triple.subject or Triple.object
+		 * @return  true if placeholder
+		 */
+		private boolean isPlaceholder(int pos){
+			if (pos==Triple.subject){
+				return subjectLabel==0 && subject.equals("~");
+			}
+			return objectLabel==0 && object.equals("~");
+		}
+		
+		/**
+		 * Sets a label for subject/object
+		 * 
+		 * @param pos  Triple.subject or Triple.object
+		 * @param label  label number
+		 */
+		private void setLabel(int pos, int label){
+			if (pos==Triple.subject){
+				subject=null;
+				subjectLabel=label;
+			}else{
+				object=null;
+				objectLabel=label;
+			}
+		}
+	}
+	
 	public void postCanonicalize(GraphCollection gc){
 		//Don't do anything
 	}
@@ -341,8 +837,8 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
 		//Prepare Digest
 		SignatureData sig=gc.getSignature();
-		MessageDigest d=MessageDigest.getInstance(digestAlgo);
-		sig.setDigestGen(d);
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
 		
 		//Hash all graphs and their sub graphs
 		sig.setHash(BigInteger.ONE);
@@ -388,12 +884,16 @@ public class SignatureAlgorithmCarroll2003 implements SignatureAlgorithmInterfac
 		//Sort triples
 		Collections.sort(triples);
 		
-		//Hash triples
+		//Hash triples (encode subject, predicate and object directly into the digest, same bytes as their concatenation)
 		d.reset();
+		Utf8Encoder encoder=SigningContext.getUtf8Encoder();
 		for (Triple t:triples){
 			if (Ontology.isRelevantForHash(t)){
-				byte[] tripleBytes=(t.getSubject()+t.getPredicate()+t.getObject()).getBytes(StandardCharsets.UTF_8);
-				d.update(tripleBytes);
+				encoder.begin(d);
+				encoder.append(t.getSubject());
+				encoder.append(t.getPredicate());
+				encoder.append(t.getObject());
+				encoder.end();
 			}
 		}
 		BigInteger tripleHash=new BigInteger(d.digest());
@@ -0,0 +1,376 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GenSymCounter;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
+
+/**
+ * Signature Algorithm "Carroll2003 Components"
+ * Ontology Name: carroll-2003-components
+ *
+ * Each graph is split into ground triples and blank node components (the MSGs of {@link NamedGraph#splitIntoMSGs(ArrayList)}).
+ * Components are canonicalized independently with the method of Carroll (in parallel, see {@link WorkerPool}),
+ * so the costly labelling steps only depend on the size of the largest component.
+ * Carroll labels components with a temporary label prefix which cannot occur in parsed blank node identifiers.
+ * Its label counter is sized for all labelling steps, because components are small and the nodes added for hard to label
+ * blank nodes (Step E/F, e.g. symmetric cycles) would exceed a counter sized with the blank nodes of the component.
+ * Components which Carroll cannot label completely are rejected instead of being signed with "~" placeholders.
+ * Canonical components are sorted by their triples and the labels of each component are renamed with the
+ * position of the component ("_:cX_gY"). Blank nodes which keep their identifiers (see {@link Component#restoreIdentifiers})
+ * may use any identifier, so "_" is added to the component prefix until no kept identifier starts with it.
+ * Hashing is done with Carroll 2003 (graph digest method: gdm-carroll-2003).
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class SignatureAlgorithmCarroll2003Components implements SignatureAlgorithmInterface {
+	public static final int TRIPLES_PER_TASK = 2048;										//Minimum number of component triples canonicalized by one task
+	private static final String LABEL_PREFIX = "_:g ";										//Temporary label prefix (contains a space, so it is never a parsed identifier)
+	private static final String COMPONENT_PREFIX = "_:c";									//Default prefix of renamed component labels
+
+	private SignatureAlgorithmCarroll2003 carroll;											//Used for hashing
+
+	//Compares canonical components by their sorted triples
+	private static final Comparator<Component> componentComparator=new Comparator<Component>(){
+		public int compare(Component a, Component b){
+			ArrayList<Triple> at=a.graph.getTriples();
+			ArrayList<Triple> bt=b.graph.getTriples();
+			int n=Math.min(at.size(), bt.size());
+			for (int i=0; i<n; i++){
+				int ret=at.get(i).compareTo(bt.get(i));
+				if (ret!=0){
+					return ret;
+				}
+			}
+			return at.size()-bt.size();
+		}
+	};
+
+	//######################################################## Constructors
+
+	public SignatureAlgorithmCarroll2003Components(){
+		carroll=new SignatureAlgorithmCarroll2003();
+	}
+
+	//######################################################## Canonicalize
+
+	public void canonicalize(GraphCollection gc) throws Exception {
+		//Canonicalize all graphs and their sub graphs
+		for (NamedGraph g:gc.getGraphs()){
+			canonicalizeGraph(g);
+		}
+
+		//Add c14n prefix (Carroll may add c14n:true triples to components)
+		carroll.addC14NPrefix(gc);
+
+		//Update Signature Data
+		gc.getSignature().setCanonicalizationMethod( Ontology.getCanonicalizationPrefix()+getName() );
+	}
+
+	/**
+	 * Canonicalize graphs by canonicalizing their blank node components (recursive)
+	 *
+	 * @param g  {@link NamedGraph} to canonicalize
+	 * @throws Exception
+	 */
+	private void canonicalizeGraph(NamedGraph g) throws Exception{
+		ArrayList<Triple> triples=g.getTriples();
+		
+		//Ground graphs have no components: only sort triples and sub graphs
+		if (!g.scanBlankNodes()){
+			Collections.sort(triples);
+			Collections.sort(g.getChildren());
+			for (NamedGraph subG:g.getChildren()){
+				canonicalizeGraph(subG);
+			}
+			return;
+		}
+
+		//Sub graphs with blank node names (their names are canonicalized with the component of the blank node)
+		HashMap<String,NamedGraph> blankGraphs=new HashMap<String,NamedGraph>();
+		for (NamedGraph subG:g.getChildren()){
+			if (subG.getName().startsWith("_")){
+				blankGraphs.put(subG.getName(), subG);
+			}
+		}
+
+		//Split into ground triples and components
+		ArrayList<Triple> groundTriples=new ArrayList<Triple>();
+		ArrayList<Component> components=new ArrayList<Component>();
+		for (MSG msg:NamedGraph.splitIntoMSGs(triples)){
+			ArrayList<Triple> msgTriples=msg.getTriples();
+			if (msgTriples.size()==1 && !hasBlankNode(msgTriples.get(0))){
+				groundTriples.add(msgTriples.get(0));
+			}else{
+				components.add(new Component(g, msgTriples, blankGraphs));
+			}
+		}
+
+		//Canonicalize components and sort them by their canonical triples
+		canonicalizeComponents(components);
+		Collections.sort(components, componentComparator);
+
+		//Rename labels with the component position and merge everything into one sorted triple list
+		triples.clear();
+		triples.addAll(groundTriples);
+		GenSymCounter counter=new GenSymCounter(components.size());
+		String componentPrefix=chooseComponentPrefix(components, blankGraphs.keySet());
+		for (int i=0; i<components.size(); i++){
+			Component component=components.get(i);
+			String prefix=componentPrefix+counter.createSymStringFromInt(i+1)+"_g";
+			for (Triple t:component.graph.getTriples()){
+				for (int j=Triple.subject; j<=Triple.object; j+=2){
+					t.setByIndex(j, renameLabel(prefix, t.getByIndex(j)));
+				}
+				triples.add(t);
+			}
+			for (NamedGraph placeholder:component.graph.getChildren()){
+				component.subGraphs.get(placeholder).setName( renameLabel(prefix, placeholder.getName()) );
+			}
+		}
+		Collections.sort(triples);
+		Collections.sort(g.getChildren());
+
+		//Canonicalize sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			canonicalizeGraph(subG);
+		}
+	}
+
+	/**
+	 * Canonicalizes components with the method of Carroll
+	 * Components are canonicalized in parallel by tasks with at least {@link #TRIPLES_PER_TASK} triples.
+	 * Each task uses its own instance of Carroll.
+	 *
+	 * @param components  components to canonicalize
+	 * @throws Exception
+	 */
+	private void canonicalizeComponents(ArrayList<Component> components) throws Exception{
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		int from=0;
+		int tripleCount=0;
+		for (int i=0; i<components.size(); i++){
+			tripleCount+=components.get(i).graph.getTriples().size();
+			if (tripleCount>=TRIPLES_PER_TASK || i==components.size()-1){
+				final ArrayList<Component> taskComponents=new ArrayList<Component>(components.subList(from, i+1));
+				tasks.add(new Callable<Void>(){
+					public Void call() throws Exception {
+						SignatureAlgorithmCarroll2003 taskCarroll=new SignatureAlgorithmCarroll2003(LABEL_PREFIX, true);
+						for (Component component:taskComponents){
+							component.canonicalize(taskCarroll);
+						}
+						return null;
+					}
+				});
+				from=i+1;
+				tripleCount=0;
+			}
+		}
+		WorkerPool.invokeAll(tasks);
+	}
+
+	/**
+	 * Chooses the prefix of renamed component labels
+	 * Identifiers kept by canonical components and names of blank sub graphs outside of components are not labelled,
+	 * so no label may start with them (otherwise a label could equal the identifier of another blank node).
+	 * Kept identifiers are the same during verification, so the same prefix is chosen again.
+	 *
+	 * @param components  canonical components
+	 * @param blankGraphNames  names of sub graphs with blank node names which are not part of any component
+	 * @return  prefix which no kept identifier starts with
+	 */
+	private static String chooseComponentPrefix(ArrayList<Component> components, Set<String> blankGraphNames){
+		//Collect kept identifiers
+		HashSet<String> kept=new HashSet<String>(blankGraphNames);
+		for (Component component:components){
+			for (Triple t:component.graph.getTriples()){
+				for (int i=Triple.subject; i<=Triple.object; i+=2){
+					String node=t.getByIndex(i);
+					if (node.startsWith("_") && !node.startsWith(LABEL_PREFIX)){
+						kept.add(node);
+					}
+				}
+			}
+			for (NamedGraph placeholder:component.graph.getChildren()){
+				if (!placeholder.getName().startsWith(LABEL_PREFIX)){
+					kept.add(placeholder.getName());
+				}
+			}
+		}
+		
+		//Extend the default prefix until it is unused
+		String prefix=COMPONENT_PREFIX;
+		boolean prefixUsed=true;
+		while (prefixUsed){
+			prefixUsed=false;
+			for (String node:kept){
+				if (node.startsWith(prefix)){
+					prefixUsed=true;
+					prefix=prefix+"_";
+					break;
+				}
+			}
+		}
+		return prefix;
+	}
+	
+	/**
+	 * Does the triple contain a blank node (subject or object)?
+	 *
+	 * @param t  triple to examine
+	 * @return  true if subject or object is a blank node
+	 */
+	private static boolean hasBlankNode(Triple t){
+		return t.getSubject().startsWith("_") || t.getObject().startsWith("_");
+	}
+
+	/**
+	 * Renames a temporary label of a component
+	 *
+	 * @param prefix  new label prefix of the component
+	 * @param node  node (label or any other term)
+	 * @return  renamed label or node if it is no label
+	 */
+	private static String renameLabel(String prefix, String node){
+		if (node.startsWith(LABEL_PREFIX)){
+			return prefix+node.substring(LABEL_PREFIX.length());
+		}
+		return node;
+	}
+
+	public void postCanonicalize(GraphCollection gc) throws Exception {
+		carroll.postCanonicalize(gc);
+	}
+	
+	/**
+	 * Blank node component of a graph
+	 */
+	private static class Component {
+		private NamedGraph graph;													//Graph with the triples of the component (sub graphs are empty placeholder graphs)
+		private IdentityHashMap<Triple,String[]> originals;							//Original subject and object of the triples
+		private IdentityHashMap<NamedGraph,NamedGraph> subGraphs;					//Sub graphs by their placeholder graphs
+		
+		/**
+		 * Creates a component from triples
+		 * Sub graphs whose names are blank nodes of the component get a placeholder graph with the same name.
+		 * 
+		 * @param g  graph of the triples
+		 * @param triples  triples of the component
+		 * @param blankGraphs  sub graphs of g with blank node names which are not part of any component yet
+		 */
+		private Component(NamedGraph g, ArrayList<Triple> triples, HashMap<String,NamedGraph> blankGraphs){
+			graph=new NamedGraph(g.getName(), g.getDepth(), null);
+			graph.getTriples().addAll(triples);
+			originals=new IdentityHashMap<Triple,String[]>(triples.size());
+			subGraphs=new IdentityHashMap<NamedGraph,NamedGraph>();
+			for (Triple t:triples){
+				originals.put(t, new String[]{t.getSubject(), t.getObject()});
+				for (int i=Triple.subject; i<=Triple.object; i+=2){
+					NamedGraph subG=blankGraphs.remove(t.getByIndex(i));
+					if (subG!=null){
+						subGraphs.put(new NamedGraph(subG.getName(), subG.getDepth(), graph), subG);
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Canonicalizes the component with the method of Carroll and sorts its triples
+		 * 
+		 * @param carroll  Carroll instance with temporary label prefix
+		 * @throws Exception
+		 */
+		private void canonicalize(SignatureAlgorithmCarroll2003 carroll) throws Exception {
+			carroll.nondeterministicPreCanonicalization(graph);
+			restoreIdentifiers();
+			Collections.sort(graph.getTriples());
+		}
+		
+		/**
+		 * Carroll keeps the identifier of the object in triples with two blank nodes.
+		 * Other occurrences of such a blank node get the original identifier back instead of a label,
+		 * so the blank node stays connected and the component is found again during verification.
+		 */
+		private void restoreIdentifiers(){
+			//Find identifiers which have been kept by Carroll
+			HashSet<String> kept=new HashSet<String>();
+			for (Triple t:graph.getTriples()){
+				for (int i=Triple.subject; i<=Triple.object; i+=2){
+					String node=t.getByIndex(i);
+					if (node.startsWith("_") && !node.startsWith(LABEL_PREFIX)){
+						kept.add(node);
+					}
+				}
+			}
+			if (kept.isEmpty()){
+				return;
+			}
+			
+			//Replace labels of these blank nodes (new c14n:true triples have no original identifiers)
+			for (Triple t:graph.getTriples()){
+				String[] original=originals.get(t);
+				if (original!=null){
+					if (t.getSubject().startsWith(LABEL_PREFIX) && kept.contains(original[0])){
+						t.setSubject(original[0]);
+					}
+					if (t.getObject().startsWith(LABEL_PREFIX) && kept.contains(original[1])){
+						t.setObject(original[1]);
+					}
+				}
+			}
+			for (NamedGraph placeholder:graph.getChildren()){
+				String name=subGraphs.get(placeholder).getName();
+				if (placeholder.getName().startsWith(LABEL_PREFIX) && kept.contains(name)){
+					placeholder.setName(name);
+				}
+			}
+		}
+	}
+
+	//######################################################## Hash
+
+	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
+		carroll.hash(gc, digestAlgo);
+	}
+
+	public void postHash(GraphCollection gc) throws Exception {
+		carroll.postHash(gc);
+	}
+
+	//######################################################## Sign
+
+	public void sign(GraphCollection gc, Key privateKey, String verificationCertificate) throws Exception {
+		Signer.sign(gc, privateKey, verificationCertificate);
+	}
+
+	//######################################################## Assemble
+
+	public void assemble(GraphCollection gc, String signatureGraphName) throws Exception {
+		Assembler.assemble(gc, signatureGraphName);
+	}
+
+	//######################################################## Verify
+
+	public boolean verify(GraphCollection gc, Key publicKey) throws Exception {
+		return Verifier.verify(gc, publicKey);
+	}
+
+	//######################################################## Get Name
+
+	public String getName(){
+		return Ontology.getAlgorithmNameCarroll2003Components();
+	}
+
+}
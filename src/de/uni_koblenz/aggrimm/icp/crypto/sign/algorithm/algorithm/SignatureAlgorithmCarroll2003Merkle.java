@@ -0,0 +1,123 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.util.Collections;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GraphBaseHasher;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.HashCombinator;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.MerkleTree;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
+
+/**
+ * Signature Algorithm "Carroll2003 Merkle"
+ * Ontology Name: carroll-2003-merkle
+ * 
+ * Canonicalization is done with Carroll 2003 (graph canonicalization method: gcm-carroll-2003).
+ * The sorted canonical triples of each graph are hashed as a Merkle tree (see {@link MerkleTree})
+ * instead of one sequential digest, so runs of triples can be hashed in parallel.
+ * Graphs are combined with multiplication modulo n.
+ * 
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class SignatureAlgorithmCarroll2003Merkle implements SignatureAlgorithmInterface {
+	private SignatureAlgorithmCarroll2003 carroll;											//Used for canonicalization
+	private int leafSize;																	//Number of triples per leaf
+	
+	//######################################################## Constructors
+	
+	public SignatureAlgorithmCarroll2003Merkle(){
+		this(MerkleTree.DEFAULT_LEAF_SIZE);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param leafSize  number of triples per leaf of the Merkle tree
+	 */
+	public SignatureAlgorithmCarroll2003Merkle(int leafSize){
+		carroll=new SignatureAlgorithmCarroll2003();
+		this.leafSize=leafSize;
+	}
+	
+	//######################################################## Canonicalize
+	
+	public void canonicalize(GraphCollection gc) throws Exception {
+		carroll.canonicalize(gc);
+	}
+	
+	public void postCanonicalize(GraphCollection gc) throws Exception {
+		carroll.postCanonicalize(gc);
+	}
+	
+	//######################################################## Hash
+	
+	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
+		//Prepare Digest
+		SignatureData sig=gc.getSignature();
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
+		
+		//Hash all graphs and their sub graphs
+		sig.setHash(BigInteger.ONE);
+		for (NamedGraph g:gc.getGraphs()){
+			sig.setHash( HashCombinator.combine( sig.getHash(), hashGraph(g,digestAlgo), HashCombinator.ca.Multiply ) );
+		}
+		
+		//Update Signature Data
+		sig.setGraphDigestMethod( Ontology.getDigestPrefix()+getName() );
+	}
+	
+	/**
+	 * Hashs graphs (recursive)
+	 * 
+	 * @param g  {@link NamedGraph} which is hashed
+	 * @param digestAlgo  digest algorithm
+	 * @return  hash value
+	 * @throws Exception
+	 */
+	private BigInteger hashGraph(NamedGraph g, String digestAlgo) throws Exception {
+		//Get hash base number
+		BigInteger h=GraphBaseHasher.calculate(g,SigningContext.getDigest(digestAlgo));
+		//Hash triples (sorted canonical order) and combine root
+		Collections.sort(g.getTriples());
+		MerkleTree tree=MerkleTree.build(g.getTriples(), digestAlgo, leafSize);
+		h=HashCombinator.combine( h, new BigInteger(tree.getRoot()), HashCombinator.ca.Multiply );
+		//Hash and combine sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			h=HashCombinator.combine( h, hashGraph(subG,digestAlgo), HashCombinator.ca.Multiply );
+		}
+		return h;
+	}
+	
+	public void postHash(GraphCollection gc){
+		//Don't do anything
+	}
+	
+	//######################################################## Sign
+	
+	public void sign(GraphCollection gc, Key privateKey, String verificationCertificate) throws Exception {
+		Signer.sign(gc, privateKey, verificationCertificate);
+	}
+	
+	//######################################################## Assemble
+	
+	public void assemble(GraphCollection gc, String signatureGraphName) throws Exception {
+		Assembler.assemble(gc, signatureGraphName);
+	}
+
+	//######################################################## Verify
+	
+	public boolean verify(GraphCollection gc, Key publicKey) throws Exception {
+		return Verifier.verify(gc, publicKey);
+	}
+	
+	//######################################################## Get Name
+	
+	public String getName(){
+		return Ontology.getAlgorithmNameCarroll2003Merkle();
+	}
+	
+}
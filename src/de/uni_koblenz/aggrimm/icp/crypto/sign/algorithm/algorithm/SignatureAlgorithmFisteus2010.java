@@ -5,14 +5,25 @@ import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmInterface;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.DigestCache;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GraphBaseHasher;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.HashCombinator;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Assembler;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Signer;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SigningContext;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Verifier;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.NamedGraph;
@@ -46,6 +57,29 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 * Collisions
 	 */
 	private int collisions;
+	
+	/**
+	 * Triple/variable hashes of each canonicalization step (by graph, in list order)
+	 * Used to sort triples and variables once after the last step (instead of in each step)
+	 */
+	private IdentityHashMap<NamedGraph,ArrayList<BigInteger[]>> tripleHashHistory;
+	private IdentityHashMap<NamedGraph,ArrayList<BigInteger[]>> variableHashHistory;
+	
+	/**
+	 * Hashes of ground graphs (by graph)
+	 * Hashes of ground graphs do not change between canonicalization steps, so they are hashed in the first step only
+	 */
+	private IdentityHashMap<NamedGraph,GraphHashes> groundHashes;
+	
+	/**
+	 * Parallel execution of canonicalization steps (see {@link #setParallel(boolean)})
+	 */
+	private boolean parallel;
+	
+	/**
+	 * Number of triples hashed by one task in parallel mode
+	 */
+	private static final int TRIPLES_PER_TASK=2048;
 		
 	/** 
 	 * Hashing Constants (Section 5.4)
@@ -65,6 +99,30 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	static private final BigInteger kLab=		new BigInteger("4719830516364819251");			//Label
 	static private final BigInteger kLit=		new BigInteger("8565450179243949149");			//Literal
 		
+	//######################################################## Constructors
+	
+	public SignatureAlgorithmFisteus2010(){
+		//Parallel mode can be enabled with a system property
+		parallel=Boolean.getBoolean("signingframework.parallel");
+	}
+	
+	//######################################################## Parallel Mode
+	
+	/**
+	 * Enables or disables the parallel mode
+	 * In parallel mode, triples and variables of all graphs are hashed by the threads of the {@link WorkerPool}
+	 * in each canonicalization step. Results are identical to the sequential mode.
+	 * 
+	 * @param parallel  true to enable parallel mode, false to disable it
+	 */
+	public void setParallel(boolean parallel){
+		this.parallel=parallel;
+	}
+	
+	public boolean isParallel(){
+		return parallel;
+	}
+	
 	//######################################################## Canonicalize
 	
 	public void canonicalize(GraphCollection gc) throws Exception {	
@@ -85,34 +143,56 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		SignatureData sig=gc.getSignature();
 		
 		//Prepare Digest
-		digestGen=MessageDigest.getInstance(digestAlgo);
-		sig.setDigestGen(digestGen);
+		digestGen=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
 		
 		//Prepare Graphs (prepare a hash map for blank nodes in each graph)
 		for (NamedGraph g:gc.getGraphs()){
 			hashGraphPrepare(g);
 		}
+		ArrayList<NamedGraph> graphs=null;
+		if (parallel){
+			graphs=listGraphs(gc);
+			registerVariables(graphs);
+		}
 		
 		//Run canonicalization steps until no collisions occur
+		tripleHashHistory=new IdentityHashMap<NamedGraph,ArrayList<BigInteger[]>>();
+		variableHashHistory=new IdentityHashMap<NamedGraph,ArrayList<BigInteger[]>>();
+		groundHashes=new IdentityHashMap<NamedGraph,GraphHashes>();
 		for (int i=0; i<10; i++){
 			int previousCollisions=collisions;
 			collisions=0;
 			
-			//Hash statements in all graphs and subgraphs
-			//Use initial value for blank nodes (kExist) if there are no calculated hashes for them yet
-			//Save hashes for triples in triples
-			for (NamedGraph g:gc.getGraphs()){
-				hashGraph(g);
+			if (parallel){
+				//Same steps in parallel mode
+				hashGraphsParallel(graphs, digestAlgo);
+				computeHashVarsParallel(graphs);
+				countCollisionsParallel(graphs);
+			}else{
+				//Hash statements in all graphs and subgraphs
+				//Use initial value for blank nodes (kExist) if there are no calculated hashes for them yet
+				//Save hashes for triples in triples
+				for (NamedGraph g:gc.getGraphs()){
+					hashGraph(g);
+				}
+				
+				//Hash variables (blank nodes)
+				for (NamedGraph g:gc.getGraphs()){
+					computeHashVars(g);
+				}
+	
+				//Count Collisions
+				for (NamedGraph g:gc.getGraphs()){
+					hashGraphCountCollisions(g);
+				}
 			}
 			
-			//Hash variables (blank nodes)
-			for (NamedGraph g:gc.getGraphs()){
-				computeHashVars(g);
-			}
-
-			//Count Collisions
-			for (NamedGraph g:gc.getGraphs()){
-				hashGraphCountCollisions(g);
+			//Save state of the first step for hashing (the hash is calculated with the first step only)
+			if (i==0){
+				for (NamedGraph g:gc.getGraphs()){
+					saveHashState(g, digestAlgo);
+				}
 			}
 			
 			//System.out.println("******* ITERATIONS: " + i);
@@ -128,6 +208,14 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 				throw new Exception("Failed to hash graph collection. Unresolved collisions after 10 iterations.");
 			}
 		}
+		
+		//Sort triples and variables by their hash values
+		for (NamedGraph g:gc.getGraphs()){
+			sortByHashes(g);
+		}
+		tripleHashHistory=null;
+		variableHashHistory=null;
+		groundHashes=null;
 
 		//Canonicalize all graphs and their sub graphs
 		for (NamedGraph g:gc.getGraphs()){
@@ -146,37 +234,47 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 */
 	private void canonicalizeGraph(NamedGraph g) throws Exception{
 		
-		//Rename Blank Nodes
-		int i=1;
-		if (g.getVariableHashes()!=null){
-			Collections.sort(g.getVariableHashes());
-			for (NodeHash nh:g.getVariableHashes()){
-				String blankNode=nh.getVar();
-				//System.out.println("bn: "+blankNode+" "+nh.getHash());
-				for (Triple t:g.getTriples()){
-					for (int j=0; j<=2; j+=2){
-						//Blank node detected!
-						if (t.getByIndex(j).equals(blankNode)){
-							//Replace blank node with new blank node identifier
-							t.setByIndex(j,"_:bn"+i);
-						}
+		//Map blank nodes to new blank node identifiers
+		//The i-th blank node (sorted by hash) is renamed to "_:bn"+i. Renaming is done step by step for i=1..n,
+		//so an identifier set in step i is renamed again in a later step j if the j-th blank node is called "_:bn"+i.
+		//The steps are composed in reverse order to get the final identifier of each blank node.
+		HashMap<String,String> newIdentifiers=new HashMap<String,String>();
+		ArrayList<NodeHash> vars=g.getVariableHashes();
+		if (vars!=null){
+			Collections.sort(vars);
+			for (int i=vars.size(); i>=1; i--){
+				String identifier="_:bn"+i;
+				String renamedLater=newIdentifiers.get(identifier);
+				newIdentifiers.put(vars.get(i-1).getVar(), renamedLater!=null ? renamedLater : identifier);
+			}
+		}
+		
+		//Hash state of the graph remains valid only if no blank nodes are merged by renaming
+		if (new HashSet<String>(newIdentifiers.values()).size()<newIdentifiers.size()){
+			g.clearHashState();
+		}
+		
+		//Rename Blank Nodes (one pass over all triples)
+		if (!newIdentifiers.isEmpty()){
+			for (Triple t:g.getTriples()){
+				for (int j=0; j<=2; j+=2){
+					String identifier=newIdentifiers.get(t.getByIndex(j));
+					//Blank node detected!
+					if (identifier!=null){
+						//Replace blank node with new blank node identifier
+						t.setByIndex(j,identifier);
 					}
 				}
-				i++;
 			}
+			g.updateHashStateFingerprint();
 		}
 		
 		//Rename sub graphs
 		for (NamedGraph subG:g.getChildren()){
 			if (subG.getName().startsWith("_")){
-				i=1;
-				if (g.getVariableHashes()!=null){
-					for (NodeHash nh:g.getVariableHashes()){
-						if (subG.getName().equals(nh.getVar())){
-							subG.setName("_:bn"+i);
-						}
-						i++;
-					}
+				String identifier=newIdentifiers.get(subG.getName());
+				if (identifier!=null){
+					subG.setName(identifier);
 				}
 			}
 		}
@@ -200,8 +298,20 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		SignatureData sig=gc.getSignature();
 		
 		//Prepare Digest
-		digestGen=MessageDigest.getInstance(digestAlgo);
-		sig.setDigestGen(digestGen);
+		digestGen=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
+		
+		//Reuse hashes of the first canonicalization step if possible
+		//(renaming blank nodes does not change these hashes, all blank nodes are hashed with kExist in the first step)
+		if (hasHashState(gc.getGraphs(), digestAlgo)){
+			BigInteger h=BigInteger.ONE;
+			for (NamedGraph g:gc.getGraphs()){
+				h = HashCombinator.combine( h, combineHashStates(g, digestAlgo), HashCombinator.ca.Multiply );
+			}
+			sig.setGraphDigestMethod( Ontology.getDigestPrefix()+getName() );
+			sig.setHash(h);
+			return;
+		}
 		
 		//Prepare Graphs (prepare a hash map for blank nodes in each graph)
 		for (NamedGraph g:gc.getGraphs()){
@@ -217,8 +327,16 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		//Hash variables (blank nodes)
 		//Combine Variables and Statements
 		for (NamedGraph g:gc.getGraphs()){
-			hashGraph(g);
-			computeHashVars(g);
+			if (parallel){
+				ArrayList<NamedGraph> graphs=new ArrayList<NamedGraph>();
+				listGraphs(g, graphs);
+				registerVariables(graphs);
+				hashGraphsParallel(graphs, digestAlgo);
+				computeHashVarsParallel(graphs);
+			}else{
+				hashGraph(g);
+				computeHashVars(g);
+			}
 			h = HashCombinator.combine( h, combineVarsAndStatements(g), HashCombinator.ca.Multiply );
 		}
 
@@ -227,6 +345,64 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		sig.setHash(h);
 	}
 	
+	/**
+	 * Save hash states of graphs (recursive)
+	 * The hash state is the product of all statement hashes and variable hashes of a graph.
+	 * 
+	 * @param g  graph
+	 * @param digestAlgo  digest algorithm used for hashing
+	 */
+	private void saveHashState(NamedGraph g, String digestAlgo){
+		BigInteger h=BigInteger.ONE;
+		for (Triple t:g.getTriples()){
+			if (Ontology.isRelevantForHash(t)){
+				h = HashCombinator.combine( h, t.getHash(), HashCombinator.ca.Multiply );
+			}
+		}
+		for (NodeHash nh:g.getVariableHashes()) {
+			h = HashCombinator.combine( h, nh.getHash(), HashCombinator.ca.Multiply );
+		}
+		g.setHashState(h, digestAlgo);
+		
+		for (NamedGraph subG:g.getChildren()){
+			saveHashState(subG, digestAlgo);
+		}
+	}
+	
+	/**
+	 * Do all graphs have a valid hash state? (recursive)
+	 * 
+	 * @param graphs  graphs
+	 * @param digestAlgo  digest algorithm
+	 * @return  true if all graphs and their sub graphs have a valid hash state, false otherwise
+	 */
+	private static boolean hasHashState(Collection<NamedGraph> graphs, String digestAlgo){
+		for (NamedGraph g:graphs){
+			if (g.getHashState(digestAlgo)==null || !hasHashState(g.getChildren(), digestAlgo)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Combine hash states (recursive)
+	 * Same result as {@link #combineVarsAndStatements(NamedGraph)} after the first step
+	 * 
+	 * @param g  graph
+	 * @param digestAlgo  digest algorithm
+	 * @return  hash value as BigInteger
+	 * @throws Exception  if fails to generate base hash
+	 */
+	private BigInteger combineHashStates(NamedGraph g, String digestAlgo) throws Exception {
+		BigInteger h=GraphBaseHasher.calculate(g, digestGen);
+		h = HashCombinator.combine( h, g.getHashState(digestAlgo), HashCombinator.ca.Multiply );
+		for (NamedGraph subG:g.getChildren()){
+			h = HashCombinator.combine( h, combineHashStates(subG, digestAlgo), HashCombinator.ca.Multiply );
+		}
+		return h;
+	}
+	
 	/**
 	 * Prepare graphs for hashing (recursive)
 	 * 
@@ -235,6 +411,7 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	private void hashGraphPrepare(NamedGraph g){
 		//Prepare variable list for this graph
 		g.setVariableHashes(new ArrayList<NodeHash>());
+		g.scanBlankNodes();
 		
 		//Prepare sub graphs
 		for (NamedGraph subG:g.getChildren()){
@@ -250,8 +427,10 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 */
 	private void hashGraph(NamedGraph g) throws Exception {
 		//Hash triples (resulting hash values are saved directly in triples)
-		for (Triple t:g.getTriples()){
-			hashTriple(t,g);
+		if (!isHashedGround(g)){
+			for (Triple t:g.getTriples()){
+				hashTriple(t,g,digestGen);
+			}
 		}
 		
 		//Hash sub graphs
@@ -261,46 +440,243 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	}
 	
 	/**
-	 * Count Collisions (recursive)
+	 * Is the graph ground and hashed in an earlier canonicalization step already?
 	 * 
-	 * @param g
+	 * @param g  graph
+	 * @return  true if the hashes of the graph can be reused
 	 */
-	private void hashGraphCountCollisions(NamedGraph g){
-		//Sort triples in graph by their hash values
-		Collections.sort(g.getTriples(), new Comparator<Triple>() {
-			public int compare(Triple t1, Triple t2) {
-				if (t1.getHash()==null){
-					throw new RuntimeException("hash of triple "+t1+" does not exist");
+	private boolean isHashedGround(NamedGraph g){
+		return groundHashes!=null && groundHashes.containsKey(g);
+	}
+	
+	//######################################################## Parallel Steps
+	
+	/**
+	 * Lists all graphs and their sub graphs (in the order they are processed by the recursive steps)
+	 * 
+	 * @param gc  graph collection
+	 * @return  list of graphs
+	 */
+	private static ArrayList<NamedGraph> listGraphs(GraphCollection gc){
+		ArrayList<NamedGraph> graphs=new ArrayList<NamedGraph>();
+		for (NamedGraph g:gc.getGraphs()){
+			listGraphs(g, graphs);
+		}
+		return graphs;
+	}
+	
+	private static void listGraphs(NamedGraph g, ArrayList<NamedGraph> graphs){
+		graphs.add(g);
+		for (NamedGraph subG:g.getChildren()){
+			listGraphs(subG, graphs);
+		}
+	}
+	
+	/**
+	 * Adds all variables (blank nodes) to the variable hashes of their graphs before hashing in parallel
+	 * Variables are added in the same order as they would be added by the sequential hashing step,
+	 * so variable lists (and thus sort orders) are identical.
+	 * 
+	 * @param graphs  all graphs
+	 */
+	private static void registerVariables(ArrayList<NamedGraph> graphs){
+		for (NamedGraph g:graphs){
+			if (!g.hasBlankNodes()){
+				continue;
+			}
+			for (Triple t:g.getTriples()){
+				if (Ontology.isRelevantForHash(t)){
+					for (int i=0; i<3; i++){
+						String r=t.getByIndex(i);
+						if (r.length()>0 && r.charAt(0)=='_' && g.getVariableHash(r)==null){
+							g.addVariableHash(new NodeHash(r, kExist));
+						}
+					}
 				}
-				if (t2.getHash()==null){
-					throw new RuntimeException("hash of triple "+t2+" does not exist");
-				}				
-				return t2.getHash().compareTo(t1.getHash());
 			}
-		});
-		
-		//Count hash collisions in statements
-		BigInteger prevHash=null;
-		for (Triple t:g.getTriples()){
-			BigInteger curHash=t.getHash();
-			if (curHash.equals(prevHash)){
-				collisions++;
+		}
+	}
+	
+	/**
+	 * Hash statements of all graphs in parallel (same as {@link #hashGraph(NamedGraph)})
+	 * Each task hashes a range of triples of one graph with its own digest.
+	 * Variables must have been registered before (see {@link #registerVariables(ArrayList)}).
+	 * 
+	 * @param graphs  all graphs
+	 * @param digestAlgo  digest algorithm
+	 * @throws Exception  if graph contains unknown resource types
+	 */
+	private void hashGraphsParallel(ArrayList<NamedGraph> graphs, final String digestAlgo) throws Exception {
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		for (final NamedGraph g:graphs){
+			if (isHashedGround(g)){
+				continue;
+			}
+			final ArrayList<Triple> triples=g.getTriples();
+			for (int from=0; from<triples.size(); from+=TRIPLES_PER_TASK){
+				final int start=from;
+				final int end=Math.min(from+TRIPLES_PER_TASK, triples.size());
+				tasks.add(new Callable<Void>(){
+					public Void call() throws Exception {
+						MessageDigest d=SigningContext.getDigest(digestAlgo);
+						for (int i=start; i<end; i++){
+							hashTriple(triples.get(i), g, d);
+						}
+						return null;
+					}
+				});
+			}
+		}
+		WorkerPool.invokeAll(tasks);
+	}
+	
+	/**
+	 * Hash variables of all graphs in parallel (same as {@link #computeHashVars(NamedGraph)})
+	 * Each task multiplies the factors of a range of triples per variable.
+	 * The partial products are multiplied with the variable hashes afterwards (multiplication is commutative).
+	 * 
+	 * @param graphs  all graphs
+	 * @throws Exception  if a variable has not been registered
+	 */
+	private void computeHashVarsParallel(ArrayList<NamedGraph> graphs) throws Exception {
+		ArrayList<Callable<IdentityHashMap<NodeHash,BigInteger>>> tasks=new ArrayList<Callable<IdentityHashMap<NodeHash,BigInteger>>>();
+		for (final NamedGraph g:graphs){
+			if (!g.hasBlankNodes()){
+				continue;
+			}
+			final ArrayList<Triple> triples=g.getTriples();
+			for (int from=0; from<triples.size(); from+=TRIPLES_PER_TASK){
+				final int start=from;
+				final int end=Math.min(from+TRIPLES_PER_TASK, triples.size());
+				tasks.add(new Callable<IdentityHashMap<NodeHash,BigInteger>>(){
+					public IdentityHashMap<NodeHash,BigInteger> call() throws Exception {
+						IdentityHashMap<NodeHash,BigInteger> factors=new IdentityHashMap<NodeHash,BigInteger>();
+						for (int i=start; i<end; i++){
+							Triple t=triples.get(i);
+							if (Ontology.isRelevantForHash(t)){
+								multiplyTermFactor(t.getSubject(), t.getHash(), kSubj, g, factors);
+								multiplyTermFactor(t.getObject(), t.getHash(), kObj, g, factors);
+							}
+						}
+						return factors;
+					}
+				});
 			}
-			prevHash=curHash;
 		}
 		
-		//Sort variable hashes by their hash values
-		Collections.sort(g.getVariableHashes());
+		//Update variable hashes
+		for (IdentityHashMap<NodeHash,BigInteger> factors:WorkerPool.invokeAll(tasks)){
+			for (Map.Entry<NodeHash,BigInteger> e:factors.entrySet()){
+				NodeHash nh=e.getKey();
+				nh.setHash(nh.getHash().multiply(e.getValue()).mod(N_MUL));
+			}
+		}
+	}
+	
+	/**
+	 * Multiplies the factor of a term (see {@link #processTerm(String, BigInteger, BigInteger, NamedGraph)}) to a partial product
+	 * 
+	 * @param term  term to hash
+	 * @param hash  hash value of the triple
+	 * @param path  path of term
+	 * @param g  {@link NamedGraph} containing the term
+	 * @param factors  partial products by variable
+	 * @throws Exception  if the variable has not been registered
+	 */
+	private static void multiplyTermFactor(String term, BigInteger hash, BigInteger path, NamedGraph g, IdentityHashMap<NodeHash,BigInteger> factors) throws Exception {
+		if (term.startsWith("_")){
+			NodeHash nh=g.getVariableHash(term);
+			if (nh==null){
+				throw new Exception("Variable '"+term+"' has not been registered");
+			}
+			BigInteger factor=hash.xor(path).mod(N_XOR);
+			BigInteger product=factors.get(nh);
+			factors.put(nh, product==null ? factor : product.multiply(factor).mod(N_MUL));
+		}
+	}
+	
+	/**
+	 * Count collisions of all graphs in parallel (same as {@link #hashGraphCountCollisions(NamedGraph)})
+	 * 
+	 * @param graphs  all graphs
+	 * @throws Exception  if a triple has no hash
+	 */
+	private void countCollisionsParallel(ArrayList<NamedGraph> graphs) throws Exception {
+		ArrayList<Callable<GraphHashes>> tasks=new ArrayList<Callable<GraphHashes>>(graphs.size());
+		for (final NamedGraph g:graphs){
+			final GraphHashes ground=groundHashes.get(g);
+			tasks.add(new Callable<GraphHashes>(){
+				public GraphHashes call() throws Exception {
+					return ground!=null ? ground : new GraphHashes(g);
+				}
+			});
+		}
+		List<GraphHashes> results=WorkerPool.invokeAll(tasks);
+		for (int i=0; i<graphs.size(); i++){
+			addGraphHashes(graphs.get(i), results.get(i));
+		}
+	}
+	
+	/**
+	 * Hashes of the triples and variables of a graph in one canonicalization step
+	 */
+	private static class GraphHashes {
+		private BigInteger[] tripleHashes;											//Triple hashes (in list order)
+		private BigInteger[] variableHashes;										//Variable hashes (in list order)
+		private int collisions;														//Collisions in triple hashes and variable hashes
 		
-		//Count hash collisions in variables
-		prevHash=null;
-		for (NodeHash nh:g.getVariableHashes()){
-			BigInteger curHash=nh.getHash();
-			if (curHash.equals(prevHash)){
-				collisions++;
+		/**
+		 * Gets the hashes of a graph and counts collisions
+		 * 
+		 * @param g  graph
+		 */
+		private GraphHashes(NamedGraph g){
+			ArrayList<Triple> triples=g.getTriples();
+			tripleHashes=new BigInteger[triples.size()];
+			for (int i=0; i<tripleHashes.length; i++){
+				Triple t=triples.get(i);
+				if (t.getHash()==null){
+					throw new RuntimeException("hash of triple "+t+" does not exist");
+				}
+				tripleHashes[i]=t.getHash();
+			}
+			
+			ArrayList<NodeHash> vars=g.getVariableHashes();
+			variableHashes=new BigInteger[vars.size()];
+			for (int i=0; i<variableHashes.length; i++){
+				variableHashes[i]=vars.get(i).getHash();
 			}
-			prevHash=curHash;
+			
+			collisions=countCollisions(tripleHashes)+countCollisions(variableHashes);
+		}
+	}
+	
+	/**
+	 * Adds collisions of a graph and saves its hashes for sorting
+	 * 
+	 * @param g  graph
+	 * @param hashes  hashes of the graph
+	 */
+	private void addGraphHashes(NamedGraph g, GraphHashes hashes){
+		if (!g.hasBlankNodes()){
+			groundHashes.put(g, hashes);
 		}
+		collisions+=hashes.collisions;
+		getHashHistory(tripleHashHistory, g).add(hashes.tripleHashes);
+		getHashHistory(variableHashHistory, g).add(hashes.variableHashes);
+	}
+	
+	/**
+	 * Count Collisions (recursive)
+	 * A collision is a hash value which occurs more than once in the triples (or variables) of a graph.
+	 * Hashes are saved for sorting after the last canonicalization step.
+	 * 
+	 * @param g
+	 */
+	private void hashGraphCountCollisions(NamedGraph g){
+		//Count hash collisions in statements and variables (hashes of ground graphs do not change)
+		GraphHashes ground=groundHashes.get(g);
+		addGraphHashes(g, ground!=null ? ground : new GraphHashes(g));
 		
 		//Count collisions in sub graphs
 		for (NamedGraph subG:g.getChildren()){
@@ -308,6 +684,124 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		}
 	}
 	
+	/**
+	 * Counts collisions in hash values (number of values minus number of distinct values)
+	 * Uses an open addressing hash table, so no sorting is required.
+	 * 
+	 * @param hashes  hash values
+	 * @return  number of collisions
+	 */
+	private static int countCollisions(BigInteger[] hashes){
+		int capacity=Integer.highestOneBit(Math.max(2, hashes.length*2-1))<<1;
+		BigInteger[] table=new BigInteger[capacity];
+		int mask=capacity-1;
+		int collisions=0;
+		for (BigInteger h:hashes){
+			int slot=h.hashCode() & mask;
+			while (true){
+				BigInteger entry=table[slot];
+				if (entry==null){
+					table[slot]=h;
+					break;
+				}else if (entry.equals(h)){
+					collisions++;
+					break;
+				}
+				slot=(slot+1) & mask;
+			}
+		}
+		return collisions;
+	}
+	
+	/**
+	 * Gets the list of saved hashes of a graph (creates an empty list if necessary)
+	 * 
+	 * @param history  saved hashes by graph
+	 * @param g  graph
+	 * @return  saved hashes of each canonicalization step
+	 */
+	private static ArrayList<BigInteger[]> getHashHistory(IdentityHashMap<NamedGraph,ArrayList<BigInteger[]>> history, NamedGraph g){
+		ArrayList<BigInteger[]> h=history.get(g);
+		if (h==null){
+			h=new ArrayList<BigInteger[]>();
+			history.put(g, h);
+		}
+		return h;
+	}
+	
+	/**
+	 * Sort triples (descending) and variables (ascending) by their hash values (recursive)
+	 * The order is the same as if they had been sorted with a stable sort in each canonicalization step:
+	 * Ties are broken by the hashes of the previous steps and finally by the original order.
+	 * 
+	 * @param g
+	 */
+	private void sortByHashes(NamedGraph g){
+		//Sort triples
+		ArrayList<Triple> triples=g.getTriples();
+		Integer[] order=sortedOrder(tripleHashHistory.get(g), triples.size(), true);
+		ArrayList<Triple> sortedTriples=new ArrayList<Triple>(triples.size());
+		for (Integer i:order){
+			sortedTriples.add(triples.get(i));
+		}
+		triples.clear();
+		triples.addAll(sortedTriples);
+		
+		//Sort variables
+		ArrayList<NodeHash> vars=g.getVariableHashes();
+		order=sortedOrder(variableHashHistory.get(g), vars.size(), false);
+		ArrayList<NodeHash> sortedVars=new ArrayList<NodeHash>(vars.size());
+		for (Integer i:order){
+			sortedVars.add(vars.get(i));
+		}
+		vars.clear();
+		vars.addAll(sortedVars);
+		
+		//Sort sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			sortByHashes(subG);
+		}
+	}
+	
+	/**
+	 * Gets the sorted order of list elements by their hashes of all canonicalization steps
+	 * Elements compare by the hash of the last step, ties by the hash of the step before (and so on).
+	 * Elements which didn't exist in a step (added later to the end of the list) are placed after all others.
+	 * 
+	 * @param history  hashes of the elements for each step
+	 * @param size  number of elements
+	 * @param descending  sort descending?
+	 * @return  list indices in sorted order
+	 */
+	private static Integer[] sortedOrder(final ArrayList<BigInteger[]> history, int size, final boolean descending){
+		Integer[] order=new Integer[size];
+		for (int i=0; i<size; i++){
+			order[i]=i;
+		}
+		if (history==null || size<2){
+			return order;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				for (int step=history.size()-1; step>=0; step--){
+					BigInteger[] hashes=history.get(step);
+					boolean hasA=a<hashes.length;
+					boolean hasB=b<hashes.length;
+					if (hasA && hasB){
+						int c=hashes[a].compareTo(hashes[b]);
+						if (c!=0){
+							return descending ? -c : c;
+						}
+					}else if (hasA!=hasB){
+						return hasA ? -1 : 1;
+					}
+				}
+				return a.compareTo(b);
+			}
+		});
+		return order;
+	}
+	
 	/**
 	 * Calculate hash for a triple (statement)
 	 * Described in section "5.6. Hashing Statements" (equation 6)
@@ -315,14 +809,15 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 * 
 	 * @param t
 	 * @param g
+	 * @param d  digest used for hashing strings
 	 * @throws Exception  if triple contains unknown resource types
 	 */
-	private void hashTriple(Triple t, NamedGraph g) throws Exception {
+	private void hashTriple(Triple t, NamedGraph g, MessageDigest d) throws Exception {
 		if (Ontology.isRelevantForHash(t)){
 			t.setHash (
-						hashResource(t.getSubject(),g).multiply(kSubj).mod(N_XOR).xor(			//Subject
-						hashResource(t.getPredicate(),g).multiply(kPred).mod(N_XOR)).xor(		//Predicate
-						hashResource(t.getObject(),g).multiply(kObj).mod(N_XOR)					//Object
+						hashResource(t.getSubject(),g,d).multiply(kSubj).mod(N_XOR).xor(			//Subject
+						hashResource(t.getPredicate(),g,d).multiply(kPred).mod(N_XOR)).xor(		//Predicate
+						hashResource(t.getObject(),g,d).multiply(kObj).mod(N_XOR)					//Object
 						).mod(N_XOR)
 					);
 		}else{
@@ -335,10 +830,11 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 * 
 	 * @param r  RDF resource string to hash
 	 * @param g  {@link NamedGraph} containing the resource
+	 * @param d  digest used for hashing strings
 	 * @return  hash value as BigInteger
 	 * @throws Exception  if resource type of r is unknown
 	 */
-	private BigInteger hashResource(String r, NamedGraph g) throws Exception{
+	private BigInteger hashResource(String r, NamedGraph g, MessageDigest d) throws Exception{
 		BigInteger h=BigInteger.ONE;
 		//Get Resource Type
 		if (r.length()>0){
@@ -348,8 +844,8 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 				//######################### Label / URI / Predicate
 				//Described in section "5.7. Hashing labeled nodes and predicates" (equation 7)
 				case '<':
-					//Use string hashing function, exclude < and > when hashing
-					return hashString(r.substring(1,r.length()-1)).xor(kLab).mod(N_XOR);
+					//Use string hashing function, exclude < and > when hashing (digests of IRIs are cached)
+					return new BigInteger( DigestCache.digest(r.substring(1,r.length()-1), d) ).xor(kLab).mod(N_XOR);
 					
 				//######################### Literal
 				//Described in section "5.8. Hashing literal values" (equations 8,9,10)
@@ -363,7 +859,7 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 					//This code is able to handle literals with language OR/AND data type in all orders anyway.
 					if (r.endsWith("\"")){
 						//Ends with quote - this means there is just the plain literal without Language / Data Type
-						hText=hashString(r.substring(1,r.length()-1));						
+						hText=hashString(r.substring(1,r.length()-1), d);						
 					}else{
 						//Does not end with quote - find the ending quote in the string
 						int len=r.length();
@@ -373,7 +869,7 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 								break;
 							}
 						}
-						hText=hashString(r.substring(1,i));
+						hText=hashString(r.substring(1,i), d);
 						//Is the string long enough to contain additional information?
 						if ((i+2)<len){
 							if (r.charAt(i+1)=='@'){
@@ -382,12 +878,12 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 									//Language + Datatype
 									String parts[]=r.substring(i+2).split("\\^\\^");
 									if (parts.length>=2){
-										hLan=hashString(parts[0]).xor(kLang).mod(N_XOR);
-										hDType=hashString(parts[1]).xor(kDType).mod(N_XOR);
+										hLan=hashString(parts[0], d).xor(kLang).mod(N_XOR);
+										hDType=hashString(parts[1], d).xor(kDType).mod(N_XOR);
 									}
 								}else{
 									//Language only
-									hLan=hashString(r.substring(i+2)).xor(kLang).mod(N_XOR);							
+									hLan=hashString(r.substring(i+2), d).xor(kLang).mod(N_XOR);							
 								}
 							}else if (r.charAt(i+1)=='^'){
 								//Data Type
@@ -396,12 +892,12 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 										//Data Type + Language
 										String parts[]=r.substring(i+3).split("@");
 										if (parts.length>=2){
-											hDType=hashString(parts[0]).xor(kDType).mod(N_XOR);
-											hLan=hashString(parts[1]).xor(kLang).mod(N_XOR);											
+											hDType=hashString(parts[0], d).xor(kDType).mod(N_XOR);
+											hLan=hashString(parts[1], d).xor(kLang).mod(N_XOR);											
 										}
 									}else{
 										//Data Type only
-										hDType=hashString(r.substring(i+3)).xor(kDType).mod(N_XOR);										
+										hDType=hashString(r.substring(i+3), d).xor(kDType).mod(N_XOR);										
 									}
 								}
 							}
@@ -414,14 +910,12 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 				//Described in section "5.5. Hashing a formula" (equation 4)
 				case '_':
 					//Get Hash
-					ArrayList<NodeHash> vars=g.getVariableHashes();
-					for (NodeHash nh:vars){
-						if (nh.getVar().equals(r)){
-							return nh.getHash();
-						}
+					NodeHash nh=g.getVariableHash(r);
+					if (nh!=null){
+						return nh.getHash();
 					}
 					//Not found, use kExist
-					g.getVariableHashes().add(new NodeHash(r, kExist));
+					g.addVariableHash(new NodeHash(r, kExist));
 					return ( kExist );
 									
 				//######################### Lists
@@ -446,10 +940,11 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 * "any good text-hashing algorithm may be chosen"
 	 * 
 	 * @param s  string to hash
+	 * @param d  digest used for hashing
 	 * @return  hash value as BigInteger
 	 */
-	private BigInteger hashString(String s){
-		return new BigInteger( digestGen.digest(s.getBytes(StandardCharsets.UTF_8)) );
+	private BigInteger hashString(String s, MessageDigest d){
+		return new BigInteger( d.digest(s.getBytes(StandardCharsets.UTF_8)) );
 	}
 	
 	/**
@@ -460,11 +955,13 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 	 */
 	private void computeHashVars(NamedGraph g){
 		//h local{f}(v) is always kExist (there are blank nodes only and no other variable types because no N3)
-		//Statements
-		for (Triple t:g.getTriples()){
-			if (Ontology.isRelevantForHash(t)){
-				processTerm(t.getSubject(),t.getHash(),kSubj,g);
-				processTerm(t.getObject(),t.getHash(),kObj,g);
+		//Statements (ground graphs have no variables)
+		if (g.hasBlankNodes()){
+			for (Triple t:g.getTriples()){
+				if (Ontology.isRelevantForHash(t)){
+					processTerm(t.getSubject(),t.getHash(),kSubj,g);
+					processTerm(t.getObject(),t.getHash(),kObj,g);
+				}
 			}
 		}
 		//Hash variables in sub graphs
@@ -487,18 +984,11 @@ public class SignatureAlgorithmFisteus2010 implements SignatureAlgorithmInterfac
 		//Is term a variable (blank node)?
 		if (term.startsWith("_")){
 			//Yes, it's a blank node! Try to get the hash
-			ArrayList<NodeHash> vars=g.getVariableHashes();
-			NodeHash currentNH=null;
-			for (NodeHash nh:vars){
-				if (nh.getVar().equals(term)){
-					currentNH=nh;
-					break;
-				}
-			}
+			NodeHash currentNH=g.getVariableHash(term);
 			if (currentNH==null){
 				//Hash does not exist yet - set to kExist (this is done in Algorithm 1 in the original implementation)
 				currentNH=new NodeHash(term,kExist);
-				vars.add(currentNH);
+				g.addVariableHash(currentNH);
 			}
 			//Update hash
 			//Calculation taken from part "if v declared at f or any upper formula then"
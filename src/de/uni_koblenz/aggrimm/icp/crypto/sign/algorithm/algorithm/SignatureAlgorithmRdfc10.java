@@ -0,0 +1,693 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Hex;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.GraphBaseHasher;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.HashCombinator;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.Utf8Encoder;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
+
+/**
+ * Signature Algorithm "RDFC-1.0"
+ * Ontology Name: rdfc-1.0
+ *
+ * Based on: RDF Dataset Canonicalization (RDFC-1.0, formerly URDNA2015), W3C Recommendation (2024)
+ * https://www.w3.org/TR/rdf-canon/
+ *
+ * All graphs of a graph collection form one dataset (the triples of a named graph are quads with the graph name).
+ * Blank nodes (including blank node graph names) get the canonical identifiers "_:c14nX".
+ * First degree hashes are computed once per blank node and reused by the N-degree hashing,
+ * which is only done for blank nodes sharing their first degree hash.
+ * First degree hashes and the N-degree hashes of the blank nodes of such a group are independent of each other
+ * and computed in parallel (see {@link WorkerPool}).
+ * The number of N-degree hashing steps is limited by {@link #MAX_HASH_STEPS}, so graphs with large symmetric
+ * blank node structures are either canonicalized or rejected in predictable time.
+ *
+ * Canonicalization always uses SHA-256. Hashing uses the digest algorithm of the signature:
+ * each graph is hashed as its sorted canonical N-Quads and combined with its sub graphs by multiplication.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class SignatureAlgorithmRdfc10 implements SignatureAlgorithmInterface {
+	public static final int MAX_HASH_STEPS = 1000000;									//Maximum number of N-degree hashing steps (calls and permutations) per canonicalization
+	public static final int BLANK_NODES_PER_TASK = 256;								//Minimum number of blank nodes hashed by one task (first degree hashes)
+	private static final String HASH_ALGORITHM = "SHA-256";							//Hash algorithm of the canonicalization
+	private static final String CANONICAL_PREFIX = "c14n";								//Prefix of canonical blank node identifiers
+	private static final String TEMPORARY_PREFIX = "b";									//Prefix of temporary blank node identifiers
+
+	//Compares N-degree hash results by their hashes
+	private static final Comparator<HashResult> hashResultComparator=new Comparator<HashResult>(){
+		public int compare(HashResult a, HashResult b){
+			return a.hash.compareTo(b.hash);
+		}
+	};
+
+	//######################################################## Canonicalize
+
+	public void canonicalize(GraphCollection gc) throws Exception {
+		//Issue canonical identifiers for all blank nodes of all graphs and their sub graphs
+		Canonicalizer canonicalizer=new Canonicalizer();
+		for (NamedGraph g:gc.getGraphs()){
+			canonicalizer.addGraph(g);
+		}
+		canonicalizer.canonicalize();
+		canonicalizer.relabel();
+
+		//Sort triples and sub graphs
+		for (NamedGraph g:gc.getGraphs()){
+			sortGraph(g);
+		}
+
+		//Update Signature Data
+		gc.getSignature().setCanonicalizationMethod( Ontology.getCanonicalizationPrefix()+getName() );
+	}
+
+	/**
+	 * Sorts the triples and sub graphs of a graph (recursive)
+	 *
+	 * @param g  {@link NamedGraph} to sort
+	 */
+	private void sortGraph(NamedGraph g){
+		Collections.sort(g.getTriples());
+		Collections.sort(g.getChildren());
+		for (NamedGraph subG:g.getChildren()){
+			sortGraph(subG);
+		}
+	}
+
+	public void postCanonicalize(GraphCollection gc){
+		//Don't do anything
+	}
+
+	/**
+	 * Is the node a blank node?
+	 *
+	 * @param node  node (or graph name)
+	 * @return  true if it is a blank node
+	 */
+	private static boolean isBlankNode(String node){
+		return node.startsWith("_");
+	}
+
+	/**
+	 * Appends a quad in N-Quads format (the graph name is omitted for unnamed graphs)
+	 *
+	 * @param sb  target
+	 * @param subject  subject
+	 * @param predicate  predicate
+	 * @param object  object
+	 * @param graph  graph name or empty string
+	 */
+	private static void appendQuad(StringBuilder sb, String subject, String predicate, String object, String graph){
+		sb.append(subject).append(' ').append(predicate).append(' ').append(object);
+		if (graph.length()>0){
+			sb.append(' ').append(graph);
+		}
+		sb.append(" .\n");
+	}
+
+	/**
+	 * Hashes strings with the hash algorithm of the canonicalization
+	 *
+	 * @param strings  strings which are hashed as if they were concatenated
+	 * @return  hash as lower case hexadecimal string
+	 * @throws Exception
+	 */
+	private static String hashStrings(Iterable<String> strings) throws Exception {
+		MessageDigest d=SigningContext.getDigest(HASH_ALGORITHM);
+		Utf8Encoder encoder=SigningContext.getUtf8Encoder();
+		encoder.begin(d);
+		for (String s:strings){
+			encoder.append(s);
+		}
+		encoder.end();
+		return Hex.encodeHexString(d.digest());
+	}
+
+	/**
+	 * Hashes a string with the hash algorithm of the canonicalization
+	 *
+	 * @param s  string to hash
+	 * @return  hash as lower case hexadecimal string
+	 * @throws Exception
+	 */
+	private static String hashString(String s) throws Exception {
+		return hashStrings(Collections.singletonList(s));
+	}
+
+	/**
+	 * Quad (triple and name of its graph)
+	 */
+	private static class Quad {
+		private Triple triple;														//Triple
+		private String graph;														//Graph name (empty string for unnamed graphs)
+
+		private Quad(Triple triple, String graph){
+			this.triple=triple;
+			this.graph=graph;
+		}
+	}
+
+	/**
+	 * Blank node with its quads and its first degree hash
+	 */
+	private static class BlankNode {
+		private String id;															//Blank node identifier
+		private ArrayList<Quad> quads;												//Quads containing the blank node
+		private String hash;														//First degree hash
+
+		private BlankNode(String id){
+			this.id=id;
+			quads=new ArrayList<Quad>();
+		}
+	}
+
+	/**
+	 * Issues blank node identifiers (prefix and counter) in issue order
+	 */
+	private static class IdentifierIssuer {
+		private String prefix;														//Identifier prefix
+		private int counter;														//Number of issued identifiers
+		private LinkedHashMap<String,String> issued;								//Issued identifiers by existing identifier (in issue order)
+
+		private IdentifierIssuer(String prefix){
+			this.prefix=prefix;
+			issued=new LinkedHashMap<String,String>();
+		}
+
+		/**
+		 * Issues an identifier for an existing identifier or returns the identifier issued before
+		 *
+		 * @param existing  existing identifier
+		 * @return  issued identifier
+		 */
+		private String issue(String existing){
+			String id=issued.get(existing);
+			if (id==null){
+				id=prefix+counter;
+				counter++;
+				issued.put(existing, id);
+			}
+			return id;
+		}
+
+		private String get(String existing){
+			return issued.get(existing);
+		}
+
+		private IdentifierIssuer copy(){
+			IdentifierIssuer c=new IdentifierIssuer(prefix);
+			c.counter=counter;
+			c.issued.putAll(issued);
+			return c;
+		}
+	}
+
+	/**
+	 * Result of the N-degree hashing of a blank node
+	 */
+	private static class HashResult {
+		private String hash;														//N-degree hash
+		private IdentifierIssuer issuer;											//Issuer with the identifiers of all blank nodes reached
+
+		private HashResult(String hash, IdentifierIssuer issuer){
+			this.hash=hash;
+			this.issuer=issuer;
+		}
+	}
+
+	/**
+	 * Canonicalization state of one dataset
+	 * The canonical issuer is only changed between parallel steps, tasks only read it.
+	 */
+	private static class Canonicalizer {
+		private ArrayList<Quad> quads;												//All quads of graphs with blank nodes
+		private HashMap<String,BlankNode> blankNodes;								//Blank nodes by identifier
+		private ArrayList<NamedGraph> blankGraphs;									//Graphs with blank node names
+		private IdentifierIssuer canonicalIssuer;									//Canonical identifiers
+		private AtomicInteger steps;												//N-degree hashing steps
+
+		private Canonicalizer(){
+			quads=new ArrayList<Quad>();
+			blankNodes=new HashMap<String,BlankNode>();
+			blankGraphs=new ArrayList<NamedGraph>();
+			canonicalIssuer=new IdentifierIssuer(CANONICAL_PREFIX);
+			steps=new AtomicInteger();
+		}
+
+		/**
+		 * Adds the quads of a graph and its sub graphs (recursive)
+		 *
+		 * @param g  {@link NamedGraph} to add
+		 */
+		private void addGraph(NamedGraph g){
+			String graphName=g.getName();
+			if (isBlankNode(graphName)){
+				blankGraphs.add(g);
+			}
+			//Quads of ground graphs with IRI names (or without names) contain no blank nodes
+			if (g.scanBlankNodes() || isBlankNode(graphName)){
+				for (Triple t:g.getTriples()){
+					Quad q=new Quad(t, graphName);
+					quads.add(q);
+					addBlankNode(t.getSubject(), q);
+					addBlankNode(t.getObject(), q);
+					addBlankNode(graphName, q);
+				}
+			}
+			for (NamedGraph subG:g.getChildren()){
+				addGraph(subG);
+			}
+		}
+
+		/**
+		 * Adds a quad to a blank node (each quad is added once per blank node)
+		 *
+		 * @param node  node of the quad
+		 * @param q  quad
+		 */
+		private void addBlankNode(String node, Quad q){
+			if (!isBlankNode(node)){
+				return;
+			}
+			BlankNode bn=blankNodes.get(node);
+			if (bn==null){
+				bn=new BlankNode(node);
+				blankNodes.put(node, bn);
+			}
+			if (bn.quads.isEmpty() || bn.quads.get(bn.quads.size()-1)!=q){
+				bn.quads.add(q);
+			}
+		}
+
+		/**
+		 * Issues canonical identifiers for all blank nodes
+		 *
+		 * @throws Exception
+		 */
+		private void canonicalize() throws Exception {
+			//First degree hashes
+			computeFirstDegreeHashes();
+			TreeMap<String,ArrayList<BlankNode>> hashToBlankNodes=new TreeMap<String,ArrayList<BlankNode>>();
+			for (BlankNode bn:blankNodes.values()){
+				ArrayList<BlankNode> list=hashToBlankNodes.get(bn.hash);
+				if (list==null){
+					list=new ArrayList<BlankNode>();
+					hashToBlankNodes.put(bn.hash, list);
+				}
+				list.add(bn);
+			}
+
+			//Blank nodes with unique first degree hashes
+			ArrayList<ArrayList<BlankNode>> groups=new ArrayList<ArrayList<BlankNode>>();
+			for (ArrayList<BlankNode> list:hashToBlankNodes.values()){
+				if (list.size()==1){
+					canonicalIssuer.issue(list.get(0).id);
+				}else{
+					groups.add(list);
+				}
+			}
+
+			//Groups of blank nodes sharing their first degree hash (in hash order)
+			for (ArrayList<BlankNode> group:groups){
+				ArrayList<Callable<HashResult>> tasks=new ArrayList<Callable<HashResult>>();
+				for (final BlankNode bn:group){
+					if (canonicalIssuer.get(bn.id)==null){
+						tasks.add(new Callable<HashResult>(){
+							public HashResult call() throws Exception {
+								IdentifierIssuer issuer=new IdentifierIssuer(TEMPORARY_PREFIX);
+								issuer.issue(bn.id);
+								return hashNDegreeQuads(bn.id, issuer);
+							}
+						});
+					}
+				}
+				ArrayList<HashResult> results=new ArrayList<HashResult>(WorkerPool.invokeAll(tasks));
+				Collections.sort(results, hashResultComparator);
+				for (HashResult result:results){
+					for (String existing:result.issuer.issued.keySet()){
+						canonicalIssuer.issue(existing);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Computes the first degree hashes of all blank nodes in parallel
+		 * Each task hashes at least {@link #BLANK_NODES_PER_TASK} blank nodes.
+		 *
+		 * @throws Exception
+		 */
+		private void computeFirstDegreeHashes() throws Exception {
+			ArrayList<BlankNode> list=new ArrayList<BlankNode>(blankNodes.values());
+			ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+			for (int from=0; from<list.size(); from+=BLANK_NODES_PER_TASK){
+				final ArrayList<BlankNode> taskBlankNodes=new ArrayList<BlankNode>(list.subList(from, Math.min(from+BLANK_NODES_PER_TASK, list.size())));
+				tasks.add(new Callable<Void>(){
+					public Void call() throws Exception {
+						for (BlankNode bn:taskBlankNodes){
+							bn.hash=hashFirstDegreeQuads(bn);
+						}
+						return null;
+					}
+				});
+			}
+			WorkerPool.invokeAll(tasks);
+		}
+
+		/**
+		 * Hash First Degree Quads
+		 * The blank node is replaced by "_:a" and all other blank nodes by "_:z".
+		 *
+		 * @param bn  blank node
+		 * @return  first degree hash
+		 * @throws Exception
+		 */
+		private String hashFirstDegreeQuads(BlankNode bn) throws Exception {
+			ArrayList<String> nquads=new ArrayList<String>(bn.quads.size());
+			StringBuilder sb=new StringBuilder();
+			for (Quad q:bn.quads){
+				sb.setLength(0);
+				appendQuad(sb, replace(q.triple.getSubject(), bn.id), q.triple.getPredicate(), replace(q.triple.getObject(), bn.id), replace(q.graph, bn.id));
+				nquads.add(sb.toString());
+			}
+			Collections.sort(nquads);
+			return hashStrings(nquads);
+		}
+
+		/**
+		 * Replaces blank nodes for first degree hashing
+		 *
+		 * @param node  node
+		 * @param id  identifier of the blank node which is hashed
+		 * @return  "_:a" for the hashed blank node, "_:z" for other blank nodes, node otherwise
+		 */
+		private static String replace(String node, String id){
+			if (!isBlankNode(node)){
+				return node;
+			}
+			return node.equals(id)?"_:a":"_:z";
+		}
+
+		/**
+		 * Hash Related Blank Node
+		 *
+		 * @param related  related blank node
+		 * @param q  quad connecting both blank nodes
+		 * @param issuer  temporary issuer
+		 * @param position  position of the related blank node ('s', 'o' or 'g')
+		 * @return  hash
+		 * @throws Exception
+		 */
+		private String hashRelatedBlankNode(String related, Quad q, IdentifierIssuer issuer, char position) throws Exception {
+			StringBuilder input=new StringBuilder();
+			input.append(position);
+			if (position!='g'){
+				input.append(q.triple.getPredicate());
+			}
+			String id=canonicalIssuer.get(related);
+			if (id==null){
+				id=issuer.get(related);
+			}
+			if (id!=null){
+				input.append("_:").append(id);
+			}else{
+				input.append(blankNodes.get(related).hash);
+			}
+			return hashString(input.toString());
+		}
+
+		/**
+		 * Hash N-Degree Quads
+		 *
+		 * @param id  identifier of the blank node
+		 * @param issuer  temporary issuer (not modified)
+		 * @return  N-degree hash and the issuer of the chosen path
+		 * @throws Exception  if the number of hashing steps exceeds {@link #MAX_HASH_STEPS}
+		 */
+		private HashResult hashNDegreeQuads(String id, IdentifierIssuer issuer) throws Exception {
+			countStep();
+
+			//Related blank nodes by their hashes
+			TreeMap<String,ArrayList<String>> hashToRelated=new TreeMap<String,ArrayList<String>>();
+			for (Quad q:blankNodes.get(id).quads){
+				addRelated(hashToRelated, id, q, q.triple.getSubject(), issuer, 's');
+				addRelated(hashToRelated, id, q, q.triple.getObject(), issuer, 'o');
+				addRelated(hashToRelated, id, q, q.graph, issuer, 'g');
+			}
+
+			//Choose the smallest path for each group of related blank nodes
+			StringBuilder data=new StringBuilder();
+			for (Map.Entry<String,ArrayList<String>> entry:hashToRelated.entrySet()){
+				data.append(entry.getKey());
+				String chosenPath=null;
+				IdentifierIssuer chosenIssuer=null;
+				String[] permutation=entry.getValue().toArray(new String[entry.getValue().size()]);
+				Arrays.sort(permutation);
+				do {
+					countStep();
+					IdentifierIssuer issuerCopy=issuer.copy();
+					StringBuilder path=new StringBuilder();
+					ArrayList<String> recursionList=new ArrayList<String>();
+					boolean skip=false;
+					for (String related:permutation){
+						String canonicalId=canonicalIssuer.get(related);
+						if (canonicalId!=null){
+							path.append("_:").append(canonicalId);
+						}else{
+							if (issuerCopy.get(related)==null){
+								recursionList.add(related);
+							}
+							path.append("_:").append(issuerCopy.issue(related));
+						}
+						if (isLonger(path, chosenPath)){
+							skip=true;
+							break;
+						}
+					}
+					if (!skip){
+						for (String related:recursionList){
+							HashResult result=hashNDegreeQuads(related, issuerCopy);
+							path.append("_:").append(issuerCopy.issue(related));
+							path.append('<').append(result.hash).append('>');
+							issuerCopy=result.issuer;
+							if (isLonger(path, chosenPath)){
+								skip=true;
+								break;
+							}
+						}
+					}
+					if (!skip && (chosenPath==null || path.toString().compareTo(chosenPath)<0)){
+						chosenPath=path.toString();
+						chosenIssuer=issuerCopy;
+					}
+				} while (nextPermutation(permutation));
+				data.append(chosenPath);
+				issuer=chosenIssuer;
+			}
+
+			return new HashResult(hashString(data.toString()), issuer);
+		}
+
+		/**
+		 * Adds a related blank node of a quad with its hash
+		 *
+		 * @param hashToRelated  related blank nodes by hash
+		 * @param id  identifier of the blank node which is hashed
+		 * @param q  quad
+		 * @param node  node of the quad
+		 * @param issuer  temporary issuer
+		 * @param position  position of the node ('s', 'o' or 'g')
+		 * @throws Exception
+		 */
+		private void addRelated(TreeMap<String,ArrayList<String>> hashToRelated, String id, Quad q, String node, IdentifierIssuer issuer, char position) throws Exception {
+			if (!isBlankNode(node) || node.equals(id)){
+				return;
+			}
+			String hash=hashRelatedBlankNode(node, q, issuer, position);
+			ArrayList<String> list=hashToRelated.get(hash);
+			if (list==null){
+				list=new ArrayList<String>();
+				hashToRelated.put(hash, list);
+			}
+			list.add(node);
+		}
+
+		/**
+		 * Can a path be skipped because it is already greater than the chosen path?
+		 *
+		 * @param path  current path
+		 * @param chosenPath  chosen path (or null)
+		 * @return  true if the path can be skipped
+		 */
+		private static boolean isLonger(StringBuilder path, String chosenPath){
+			return chosenPath!=null && path.length()>=chosenPath.length() && path.toString().compareTo(chosenPath)>0;
+		}
+
+		/**
+		 * Counts an N-degree hashing step
+		 *
+		 * @throws Exception  if the number of hashing steps exceeds {@link #MAX_HASH_STEPS}
+		 */
+		private void countStep() throws Exception {
+			if (steps.incrementAndGet()>MAX_HASH_STEPS){
+				throw new Exception("Number of hashing steps exceeds maximum value ("+MAX_HASH_STEPS+")");
+			}
+		}
+
+		/**
+		 * Replaces all blank nodes with their canonical identifiers
+		 */
+		private void relabel(){
+			for (Quad q:quads){
+				Triple t=q.triple;
+				if (isBlankNode(t.getSubject())){
+					t.setSubject( "_:"+canonicalIssuer.get(t.getSubject()) );
+				}
+				if (isBlankNode(t.getObject())){
+					t.setObject( "_:"+canonicalIssuer.get(t.getObject()) );
+				}
+			}
+			for (NamedGraph g:blankGraphs){
+				g.setName( "_:"+canonicalIssuer.get(g.getName()) );
+			}
+		}
+	}
+
+	/**
+	 * Rearranges strings to the next permutation in lexicographic order
+	 * Equal strings are not swapped, so each distinct permutation is visited once.
+	 *
+	 * @param a  strings (start with sorted strings)
+	 * @return  false if a was the last permutation
+	 */
+	private static boolean nextPermutation(String[] a){
+		int i=a.length-2;
+		while (i>=0 && a[i].compareTo(a[i+1])>=0){
+			i--;
+		}
+		if (i<0){
+			return false;
+		}
+		int j=a.length-1;
+		while (a[j].compareTo(a[i])<=0){
+			j--;
+		}
+		String tmp=a[i];
+		a[i]=a[j];
+		a[j]=tmp;
+		for (int k=i+1, l=a.length-1; k<l; k++, l--){
+			tmp=a[k];
+			a[k]=a[l];
+			a[l]=tmp;
+		}
+		return true;
+	}
+
+	//######################################################## Hash
+
+	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
+		//Prepare Digest
+		SignatureData sig=gc.getSignature();
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
+
+		//Hash all graphs and their sub graphs
+		sig.setHash(BigInteger.ONE);
+		for (NamedGraph g:gc.getGraphs()){
+			sig.setHash( HashCombinator.combine( sig.getHash(), hashGraph(g,d), HashCombinator.ca.Multiply ) );
+		}
+
+		//Update Signature Data
+		sig.setGraphDigestMethod( Ontology.getDigestPrefix()+getName() );
+	}
+
+	/**
+	 * Hashes graphs (recursive)
+	 * The triples of a graph are hashed as sorted canonical N-Quads.
+	 *
+	 * @param g  {@link NamedGraph} which is hashed
+	 * @param d  used digest method for hashing
+	 * @return  hash value
+	 * @throws Exception
+	 */
+	private BigInteger hashGraph(NamedGraph g, MessageDigest d) throws Exception {
+		//Get hash base number
+		BigInteger h=GraphBaseHasher.calculate(g,d);
+
+		//Serialize and sort triples
+		ArrayList<String> nquads=new ArrayList<String>(g.getTriples().size());
+		StringBuilder sb=new StringBuilder();
+		for (Triple t:g.getTriples()){
+			if (Ontology.isRelevantForHash(t)){
+				sb.setLength(0);
+				appendQuad(sb, t.getSubject(), t.getPredicate(), t.getObject(), g.getName());
+				nquads.add(sb.toString());
+			}
+		}
+		Collections.sort(nquads);
+
+		//Hash and combine triples
+		d.reset();
+		Utf8Encoder encoder=SigningContext.getUtf8Encoder();
+		encoder.begin(d);
+		for (String nquad:nquads){
+			encoder.append(nquad);
+		}
+		encoder.end();
+		h=HashCombinator.combine( h, new BigInteger(d.digest()), HashCombinator.ca.Multiply );
+
+		//Hash and combine sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			h=HashCombinator.combine( h, hashGraph(subG,d), HashCombinator.ca.Multiply );
+		}
+		return h;
+	}
+
+	public void postHash(GraphCollection gc){
+		//Don't do anything
+	}
+
+	//######################################################## Sign
+
+	public void sign(GraphCollection gc, Key privateKey, String verificationCertificate) throws Exception {
+		Signer.sign(gc, privateKey, verificationCertificate);
+	}
+
+	//######################################################## Assemble
+
+	public void assemble(GraphCollection gc, String signatureGraphName) throws Exception {
+		Assembler.assemble(gc, signatureGraphName);
+	}
+
+	//######################################################## Verify
+
+	public boolean verify(GraphCollection gc, Key publicKey) throws Exception {
+		return Verifier.verify(gc, publicKey);
+	}
+
+	//######################################################## Get Name
+
+	public String getName(){
+		return Ontology.getAlgorithmNameRdfc10();
+	}
+
+}
@@ -53,6 +53,39 @@ public class SignatureAlgorithmSayers2004 implements SignatureAlgorithmInterface
 	 * @param g
 	 */
 	private void canonicalizeGraph(NamedGraph g){
+		//Label blank nodes (ground graphs without blank node graph names have nothing to label)
+		if (g.scanBlankNodes() || hasBlankGraphNames(g)){
+			labelBlankNodes(g);
+		}
+		
+		//Sort and canonicalize sub graphs
+		Collections.sort(g.getChildren());
+		for (NamedGraph subG:g.getChildren()){
+			canonicalizeGraph(subG);
+		}
+	}
+	
+	/**
+	 * Does the graph have sub graphs with blank node names?
+	 * 
+	 * @param g
+	 * @return  true if at least one sub graph name is a blank node
+	 */
+	private boolean hasBlankGraphNames(NamedGraph g){
+		for (NamedGraph subG:g.getChildren()){
+			if (subG.getName().startsWith("_")){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Replaces blank nodes of a graph and the names of its sub graphs with their labels or adds labeling triples
+	 * 
+	 * @param g
+	 */
+	private void labelBlankNodes(NamedGraph g){
 		//Existing labeling triples (maps blank nodes to label)
 		HashMap<String,String> existingLabels=new HashMap<String,String>();
 		//New labeling triples (blank nodes and labels are equal for new labeling triples)
@@ -117,12 +150,6 @@ public class SignatureAlgorithmSayers2004 implements SignatureAlgorithmInterface
 						"\""+label+"\""
 					));
 		}
-		
-		//Sort and canonicalize sub graphs
-		Collections.sort(g.getChildren());
-		for (NamedGraph subG:g.getChildren()){
-			canonicalizeGraph(subG);
-		}
 	}
 	
 	public void postCanonicalize(GraphCollection gc){
@@ -139,8 +166,8 @@ public class SignatureAlgorithmSayers2004 implements SignatureAlgorithmInterface
 	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
 		//Prepare Digest
 		SignatureData sig=gc.getSignature();
-		MessageDigest d=MessageDigest.getInstance(digestAlgo);
-		sig.setDigestGen(d);
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
 		
 		//Hash all graphs and their sub graphs
 		sig.setHash(BigInteger.ONE);
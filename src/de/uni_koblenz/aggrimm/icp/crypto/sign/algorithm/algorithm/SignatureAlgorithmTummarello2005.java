@@ -3,16 +3,27 @@ package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm;
 import java.math.BigInteger;
 import java.security.Key;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.ArrayList;
-
-import javax.crypto.Cipher;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
 
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.*;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.Assembler;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SignatureMethod;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SigningContext;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
 
@@ -23,6 +34,8 @@ import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
  * Based on: Tummarello, G., Morbidoni, C., Puliti, P., Piazza, F.: Signing individual fragments of an RDF graph. In: WWW, ACM (2005) 1020-1021
  * Uses the algorithm of Carroll (see class SignatureAlgorithmCarroll2003)
  * 
+ * MSGs are independent, so they can be hashed and signed in parallel (see {@link #setParallel(boolean)}).
+ * 
  * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
  */
 public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInterface {
@@ -42,11 +55,38 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	//Carroll algorithm (used for canonicalization/hashing)
 	private SignatureAlgorithmCarroll2003 carroll;
 	
+	//Parallel mode (see setParallel)
+	private boolean parallel;
+	
+	//Number of MSGs hashed/signed by one task in parallel mode
+	public static final int MSGS_PER_TASK=256;
+	
 	//######################################################## Constructors
 
 	public SignatureAlgorithmTummarello2005(){
 		//Initialize Carroll's algorithm
 		carroll=new SignatureAlgorithmCarroll2003();
+		
+		//Parallel mode can be enabled with a system property
+		parallel=Boolean.getBoolean("signingframework.parallel");
+	}
+	
+	//######################################################## Parallel Mode
+	
+	/**
+	 * Enables or disables the parallel mode
+	 * In parallel mode, graphs are split into MSGs and MSGs are hashed and signed by the threads of the {@link WorkerPool}.
+	 * Each thread uses its own digest and initialized cipher or signature (see {@link SigningContext}).
+	 * Results are identical to the sequential mode.
+	 * 
+	 * @param parallel  true to enable parallel mode, false to disable it
+	 */
+	public void setParallel(boolean parallel){
+		this.parallel=parallel;
+	}
+	
+	public boolean isParallel(){
+		return parallel;
 	}
 	
 	
@@ -74,58 +114,77 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	 * @throws Exception  if incomplete reifications are detected
 	 */
 	private void canonicalizeGraph(NamedGraph g) throws Exception{
+		canonicalizeTriples(g);
+		
+		//Canonicalize sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			canonicalizeGraph(subG);
+		}
+	}
+	
+	/**
+	 * Canonicalize the triples of a graph by caching and removing reification statements & applying algorithm of Carroll
+	 * Sub graphs are not canonicalized.
+	 * 
+	 * @param g
+	 * @throws Exception  if incomplete reifications are detected
+	 */
+	private void canonicalizeTriples(NamedGraph g) throws Exception{
 		ArrayList<Triple> triples=g.getTriples();
 		
-		//Find existing reification statements
-		ArrayList<String> reifications=new ArrayList<String>();
-		Iterator<Triple> it = triples.iterator();
-		while (it.hasNext()) {
-			Triple t=it.next();
-			if (t.getSubject().startsWith("_")){
-				if (t.getObject().equals("<"+w3cRdfSyntaxUri+"Statement>")){
-					if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"type>")){
-						reifications.add(t.getSubject());
-						it.remove();
+		//Find existing reification statements (reifications have blank node subjects, so ground graphs have none)
+		//Reification data by reification subject (in order of the reification statements)
+		LinkedHashMap<String,String[]> reifications=new LinkedHashMap<String,String[]>();
+		if (g.scanBlankNodes()){
+			for (Triple t:triples){
+				if (t.getSubject().startsWith("_")){
+					if (t.getObject().equals("<"+w3cRdfSyntaxUri+"Statement>")){
+						if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"type>")){
+							reifications.put(t.getSubject(), new String[5]);
+						}
 					}
 				}
 			}
 		}
 		
-		//Save and remove existing reification statements
+		//Save and remove existing reification statements (one pass over all triples)
 		if (!reifications.isEmpty()){
-			for (String reificationSubject:reifications){
-				it = triples.iterator();
-				String[] data=new String[5];
-				while (it.hasNext()) {
-					//Detect & Remove
-					Triple t=it.next();
-				    if (t.getSubject().equals(reificationSubject)) {
-				    	//data[0] <- Reification Subject
-				    	if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"subject>")){
-				    		data[0]=t.getObject();
-				    	//data[1] <- Reification Predicate
-				    	}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"predicate>")){
-				    		data[1]=t.getObject();
-				    	//data[2] <- Reification Object
-				    	}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"object>")){
-				    		data[2]=t.getObject();
-				    	//data[3] <- Reification Certificate
-				    	}else if (t.getPredicate().equals("<"+signatureUri+certificateText+">")){
-				    		data[3]=t.getObject();
-				    	//data[4] <- Reification Signature
-				    	}else if (t.getPredicate().equals("<"+signatureUri+signatureText+">")){
-				    		data[4]=t.getObject();
-				    	//Everything else...
-				    	}else{
-				    		//Unexpected, additional reification statemens should not cause any problems
-				    		//Could throw an exception when being strict though
-				    		throw new Exception("Unexpected reification statement: "+t);
-				    	}
-				    	//Remove
-		    			it.remove();
-				    }
+			ArrayList<Triple> remaining=new ArrayList<Triple>(triples.size());
+			for (Triple t:triples){
+				//Detect & Remove
+				String[] data=reifications.get(t.getSubject());
+				if (data==null){
+					remaining.add(t);
+				//Reification statement
+				}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"type>") && t.getObject().equals("<"+w3cRdfSyntaxUri+"Statement>")){
+					continue;
+				//data[0] <- Reification Subject
+				}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"subject>")){
+					data[0]=t.getObject();
+				//data[1] <- Reification Predicate
+				}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"predicate>")){
+					data[1]=t.getObject();
+				//data[2] <- Reification Object
+				}else if (t.getPredicate().equals("<"+w3cRdfSyntaxUri+"object>")){
+					data[2]=t.getObject();
+				//data[3] <- Reification Certificate
+				}else if (t.getPredicate().equals("<"+signatureUri+certificateText+">")){
+					data[3]=t.getObject();
+				//data[4] <- Reification Signature
+				}else if (t.getPredicate().equals("<"+signatureUri+signatureText+">")){
+					data[4]=t.getObject();
+				//Everything else...
+				}else{
+					//Unexpected, additional reification statemens should not cause any problems
+					//Could throw an exception when being strict though
+					throw new Exception("Unexpected reification statement: "+t);
 				}
-				//Check if reification is complete (are subject, predicate, object, certificate and signature set?) 
+			}
+			triples.clear();
+			triples.addAll(remaining);
+			
+			//Check if reifications are complete (are subject, predicate, object, certificate and signature set?) 
+			for (String[] data:reifications.values()){
 				if (!Arrays.asList(data).contains(null)){
 					g.addMSGSignature(data);
 				}else{
@@ -138,17 +197,12 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 		if (!triples.isEmpty()){
 			carroll.nondeterministicPreCanonicalization(g);
 		}
-		
-		//Canonicalize sub graphs
-		for (NamedGraph subG:g.getChildren()){
-			canonicalizeGraph(subG);
-		}
 	}
 	
-	public void postCanonicalize(GraphCollection gc){
+	public void postCanonicalize(GraphCollection gc) throws Exception {
 		//Split graphs into MSGs (recursive)
 		for (NamedGraph g:gc.getGraphs()){
-			g.splitIntoMSGs();
+			g.splitIntoMSGs(parallel);
 		}
 	}
 	
@@ -157,12 +211,20 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	public void hash(GraphCollection gc, String digestAlgo) throws Exception {
 		//Prepare Digest
 		SignatureData sig=gc.getSignature();
-		MessageDigest d=MessageDigest.getInstance(digestAlgo);
-		sig.setDigestGen(d);
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		sig.setDigestGen(SigningContext.newDigest(digestAlgo));
 		
 		//Hash the MSGs of all graphs
+		ArrayList<MSG> msgs=new ArrayList<MSG>();
 		for (NamedGraph g:gc.getGraphs()){
-			hashGraph(g,d);
+			collectMSGs(g, msgs, false);
+		}
+		if (parallel){
+			hashMSGsParallel(msgs, digestAlgo);
+		}else{
+			for (MSG msg:msgs){
+				hashMSG(msg, d);
+			}
 		}
 		
 		//Update Signature Data
@@ -170,22 +232,51 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	}
 	
 	/**
-	 * Hash named graphs (recursive) by calculating the hash values for all individual MSGs in each graph
+	 * Collect the MSGs of named graphs (recursive, in graph order)
 	 * 
-	 * @param g
-	 * @param d
-	 * @throws Exception
+	 * @param g  {@link NamedGraph} whose MSGs are collected
+	 * @param msgs  list the MSGs are added to
+	 * @param split  true if all triples must have been split into MSGs
+	 * @throws Exception  if split is true and graph has not been split to MSGs properly
 	 */
-	private void hashGraph(NamedGraph g, MessageDigest d) throws Exception {	
-		//Hash MSGs
-		for (MSG msg:g.getMSGs()){
-			hashMSG(msg, d);
+	private static void collectMSGs(NamedGraph g, ArrayList<MSG> msgs, boolean split) throws Exception {
+		//Has triples? Shouldn't be the case. There should only be MSGs!
+		if (split && !g.getTriples().isEmpty()){
+			throw new Exception("Graph has triples which are not split into MSGs. Call 'canonicalize' of Tummarello2005 first.");
 		}
 		
-		//Hash sub graphs
+		msgs.addAll(g.getMSGs());
+		
+		//Collect MSGs of sub graphs
 		for (NamedGraph subG:g.getChildren()){
-			hashGraph(subG,d);
+			collectMSGs(subG, msgs, split);
+		}
+	}
+	
+	/**
+	 * Hash MSGs in parallel (same as {@link #hashMSG(MSG, MessageDigest)})
+	 * Each task hashes a range of MSGs with the digest of its thread.
+	 * 
+	 * @param msgs  MSGs to hash
+	 * @param digestAlgo  digest algorithm
+	 * @throws Exception
+	 */
+	private void hashMSGsParallel(final ArrayList<MSG> msgs, final String digestAlgo) throws Exception {
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		for (int from=0; from<msgs.size(); from+=MSGS_PER_TASK){
+			final int start=from;
+			final int end=Math.min(from+MSGS_PER_TASK, msgs.size());
+			tasks.add(new Callable<Void>(){
+				public Void call() throws Exception {
+					MessageDigest d=SigningContext.getDigest(digestAlgo);
+					for (int i=start; i<end; i++){
+						hashMSG(msgs.get(i), d);
+					}
+					return null;
+				}
+			});
 		}
+		WorkerPool.invokeAll(tasks);
 	}
 	
 	/**
@@ -209,57 +300,188 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	
 	public void sign(GraphCollection gc, Key privateKey, String verficiationCertificate) throws Exception {
 		//Sign all MSGs in all graphs and sub graphs
+		String method=SignatureMethod.getMethod(gc.getSignature(), privateKey);
+		ArrayList<MSG> msgs=new ArrayList<MSG>();
 		for (NamedGraph g:gc.getGraphs()){
-			signGraph(g, privateKey, verficiationCertificate);
+			collectMSGs(g, msgs, true);
+		}
+		if (parallel){
+			signMSGsParallel(msgs, method, privateKey, verficiationCertificate);
+		}else{
+			try {
+				for (MSG msg:msgs){
+					signMSG(msg, method, privateKey, verficiationCertificate);
+				}
+			} finally {
+				SigningContext.clear();
+			}
 		}
 		
 		//Update Signature Data
-		gc.getSignature().setSignatureMethod(privateKey.getAlgorithm().toLowerCase());
+		gc.getSignature().setSignatureMethod(method);
 	}
 	
 	/**
-	 * Sign named graphs (recursive) by signing each individual MSG in it
+	 * Sign all MSGs again and keep the signatures of unchanged MSGs
+	 * Cached MSG signatures are the reification statements found by 'canonicalize' (e.g. of a signed graph collection
+	 * whose signature graph has been removed with {@link SignatureVerifier#removeSignatureGraph(GraphCollection)}).
+	 * A cached signature is kept if it has the same certificate and if it can be verified with the public key,
+	 * i.e. the MSG hash is unchanged and the signature has been created with the private key.
+	 * Other MSGs (new or changed) are signed with the private key.
 	 * 
-	 * @param g
-	 * @param privateKey
+	 * @param gc  {@link GraphCollection} to sign
+	 * @param privateKey  private key for new signatures
+	 * @param publicKey  public key of the private key (used to check cached signatures)
 	 * @param verficiationCertificate
+	 * @return  number of kept signatures
+	 * @throws Exception  if graph has not been split to MSGs properly or if a MSG has no hash data
+	 */
+	public int sign(GraphCollection gc, final Key privateKey, final Key publicKey, final String verficiationCertificate) throws Exception {
+		//Collect all MSGs in all graphs and sub graphs with their cached signatures
+		final String method=SignatureMethod.getMethod(gc.getSignature(), privateKey);
+		final ArrayList<MSG> msgs=new ArrayList<MSG>();
+		final ArrayList<String[]> cachedSigs=new ArrayList<String[]>();
+		for (NamedGraph g:gc.getGraphs()){
+			collectMSGs(g, msgs, cachedSigs);
+		}
+		
+		//Keep or create signatures
+		final AtomicInteger kept=new AtomicInteger();
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		int msgsPerTask=parallel ? MSGS_PER_TASK : Math.max(1, msgs.size());
+		for (int from=0; from<msgs.size(); from+=msgsPerTask){
+			final int start=from;
+			final int end=Math.min(from+msgsPerTask, msgs.size());
+			tasks.add(new Callable<Void>(){
+				public Void call() throws Exception {
+					try {
+						for (int i=start; i<end; i++){
+							if (keepMSGSignature(msgs.get(i), cachedSigs.get(i), method, publicKey, verficiationCertificate)){
+								kept.incrementAndGet();
+							}else{
+								signMSG(msgs.get(i), method, privateKey, verficiationCertificate);
+							}
+						}
+					} finally {
+						SigningContext.clear();
+					}
+					return null;
+				}
+			});
+		}
+		WorkerPool.invokeAll(tasks);
+		
+		//Update Signature Data
+		gc.getSignature().setSignatureMethod(method);
+		
+		return kept.get();
+	}
+	
+	/**
+	 * Collect the MSGs of named graphs (recursive, in graph order) and assign cached signatures to them
+	 * 
+	 * @param g  {@link NamedGraph} whose MSGs are collected
+	 * @param msgs  list the MSGs are added to
+	 * @param cachedSigs  list the cached signature of each MSG is added to (null if there is none)
 	 * @throws Exception  if graph has not been split to MSGs properly
 	 */
-	private void signGraph(NamedGraph g, Key privateKey, String verficiationCertificate) throws Exception {
-		//Has triples? Shouldn't be the case. There should only be MSGs!
+	private static void collectMSGs(NamedGraph g, ArrayList<MSG> msgs, ArrayList<String[]> cachedSigs) throws Exception {
 		if (!g.getTriples().isEmpty()){
 			throw new Exception("Graph has triples which are not split into MSGs. Call 'canonicalize' of Tummarello2005 first.");
 		}
 		
-		//Sign MSGs
+		ArrayList<String[]> msgSigs=g.getMSGSignatures();
+		SignatureIndex index=(msgSigs!=null) ? new SignatureIndex(msgSigs) : null;
 		for (MSG msg:g.getMSGs()){
-			signMSG(msg, privateKey, verficiationCertificate);
+			msgs.add(msg);
+			cachedSigs.add( (index!=null && !msg.getTriples().isEmpty()) ? index.take(msg.getTriples()) : null );
 		}
 		
-		//Sign sub graphs
+		//Collect MSGs of sub graphs
 		for (NamedGraph subG:g.getChildren()){
-			signGraph(subG, privateKey, verficiationCertificate);
+			collectMSGs(subG, msgs, cachedSigs);
 		}
 	}
 	
+	/**
+	 * Keep the cached signature of a MSG if it is still valid
+	 * 
+	 * @param msg
+	 * @param cachedSig  cached signature data (subject, predicate, object, certificate, signature) or null
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param publicKey  public key used to check the cached signature
+	 * @param verficiationCertificate
+	 * @return  true if the signature has been kept, false if the MSG must be signed
+	 * @throws Exception  if MSG has no hash data because no hashing has been performed
+	 */
+	private static boolean keepMSGSignature(MSG msg, String[] cachedSig, String method, Key publicKey, String verficiationCertificate) throws Exception {
+		if (msg.getHash()==null){
+			throw new Exception("MSG has no hash data. Call 'canonicalize' and 'hash' methods first.");
+		}
+		if (cachedSig==null || !cachedSig[3].equals(verficiationCertificate)){
+			return false;
+		}
+		
+		//Strip Quotes
+		String signature=cachedSig[4].substring(1, cachedSig[4].length()-1);
+		if (!checkMSGSignature(msg.getHash(), signature, method, publicKey)){
+			return false;
+		}
+		
+		//Update Signature Data
+		msg.setSignature( signature );
+		msg.setCertificate( verficiationCertificate );
+		return true;
+	}
+	
+	/**
+	 * Sign MSGs in parallel (same as {@link #signMSG(MSG, String, Key, String)})
+	 * Each task signs a range of MSGs with the cipher or signature of its thread (see {@link SigningContext}) and releases it afterwards.
+	 * 
+	 * @param msgs  MSGs to sign
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param privateKey
+	 * @param verficiationCertificate
+	 * @throws Exception  if a MSG has no hash data
+	 */
+	private void signMSGsParallel(final ArrayList<MSG> msgs, final String method, final Key privateKey, final String verficiationCertificate) throws Exception {
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		for (int from=0; from<msgs.size(); from+=MSGS_PER_TASK){
+			final int start=from;
+			final int end=Math.min(from+MSGS_PER_TASK, msgs.size());
+			tasks.add(new Callable<Void>(){
+				public Void call() throws Exception {
+					try {
+						for (int i=start; i<end; i++){
+							signMSG(msgs.get(i), method, privateKey, verficiationCertificate);
+						}
+					} finally {
+						SigningContext.clear();
+					}
+					return null;
+				}
+			});
+		}
+		WorkerPool.invokeAll(tasks);
+	}
+	
 	/**
 	 * Sign MSG
 	 * 
 	 * @param msg
+	 * @param method  signature method (see {@link SignatureMethod})
 	 * @param privateKey
 	 * @param verficiationCertificate
 	 * @throws Exception  if MSG has no hash data because no hashing has been performed
 	 */
-	private void signMSG(MSG msg, Key privateKey, String verficiationCertificate) throws Exception {
+	private void signMSG(MSG msg, String method, Key privateKey, String verficiationCertificate) throws Exception {
 		//Signature Data existing?
 		if (msg.getHash()==null){
 			throw new Exception("MSG has no hash data. Call 'canonicalize' and 'hash' methods first.");
 		}
 				
 		//Sign
-		Cipher cipher = Cipher.getInstance(privateKey.getAlgorithm());
-		cipher.init(Cipher.ENCRYPT_MODE, privateKey);
-		String signature = new String( Base64.encodeBase64( cipher.doFinal( msg.getHash().toByteArray() ) ));
+		String signature = new String( Base64.encodeBase64( SignatureMethod.sign( method, privateKey, msg.getHash().toByteArray() ) ));
 		//String signature = new String( Base64.encodeBase64( msg.getHash().toByteArray() ) );
 		
 		//Update Signature Data
@@ -316,13 +538,179 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	//######################################################## Verify
 	
 	public boolean verify(GraphCollection gc, Key publicKey) throws Exception {
+		//Parallel mode: check MSGs on all workers and stop at the first failure
+		if (parallel){
+			SignatureAssignment assignment=assignSignatures(gc);
+			if (checkSignatures(assignment, SignatureMethod.getMethod(gc.getSignature(), publicKey), publicKey)!=null){
+				return false;
+			}
+			//Same exception as in sequential mode if no MSG before the missing or unused signature is invalid
+			if (assignment.error!=null){
+				throw new Exception(assignment.error);
+			}
+			return true;
+		}
+		
 		//Verify all MSGs in all graphs and sub graphs
+		String method=SignatureMethod.getMethod(gc.getSignature(), publicKey);
+		for (NamedGraph g:gc.getGraphs()){
+			if (!verifyGraph(g, method, publicKey)){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Verify all MSGs until the first failure
+	 * Signatures are assigned to the MSGs in the order of {@link #verifyGraph(NamedGraph, String, Key)} until a signature
+	 * is missing or unused. The signatures of the MSGs before are checked afterwards (in parallel mode by the threads of
+	 * the {@link WorkerPool}). Outstanding checks are cancelled as soon as a signature is invalid.
+	 * The outcome is the same as with {@link #verify(GraphCollection, Key)}: an invalid MSG is reported even if a signature
+	 * is missing after it, a missing or unused signature is only reported if all MSGs before it are valid.
+	 * 
+	 * @param gc  {@link GraphCollection} to verify (canonicalized and hashed)
+	 * @param publicKey  public key used for cryptographic signature verificaton
+	 * @return  failed result of the invalid MSG found ("Invalid signature", with graph name and MSG triples),
+	 *          failed result for a missing signature ("No signature found", with graph name and MSG triples)
+	 *          or for a signature without MSG ("Unused MSG reification signature", with graph name only),
+	 *          verified result for the graph collection otherwise
+	 * @throws Exception
+	 */
+	public VerificationResult verifyUntilFailure(GraphCollection gc, Key publicKey) throws Exception {
+		//Assign signatures to the MSGs of all graphs and sub graphs
+		SignatureAssignment assignment=assignSignatures(gc);
+		
+		//Check signatures until the first failure
+		VerificationResult failure=checkSignatures(assignment, SignatureMethod.getMethod(gc.getSignature(), publicKey), publicKey);
+		if (failure!=null){
+			return failure;
+		}
+		return (assignment.failure!=null) ? assignment.failure : new VerificationResult(null, null, true, null);
+	}
+	
+	/**
+	 * Checks the signatures of assigned MSGs until the first failure
+	 * 
+	 * @param assignment  MSGs with assigned signatures
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param publicKey  public key used for cryptographic signature verificaton
+	 * @return  failed result of an invalid MSG or null if all signatures are valid
+	 * @throws Exception
+	 */
+	private VerificationResult checkSignatures(SignatureAssignment assignment, final String method, final Key publicKey) throws Exception {
+		final ArrayList<MSG> msgs=assignment.msgs;
+		final ArrayList<NamedGraph> msgGraphs=assignment.msgGraphs;
+		ArrayList<Callable<VerificationResult>> tasks=new ArrayList<Callable<VerificationResult>>();
+		int msgsPerTask=parallel ? MSGS_PER_TASK : Math.max(1, msgs.size());
+		for (int from=0; from<msgs.size(); from+=msgsPerTask){
+			final int start=from;
+			final int end=Math.min(from+msgsPerTask, msgs.size());
+			tasks.add(new Callable<VerificationResult>(){
+				public VerificationResult call() throws Exception {
+					for (int i=start; i<end; i++){
+						//Cancelled because another MSG is invalid?
+						if (Thread.currentThread().isInterrupted()){
+							return null;
+						}
+						MSG msg=msgs.get(i);
+						String sigString=msg.getSignature();
+						if (!checkMSGSignature(msg.getHash(), sigString.substring(1, sigString.length()-1), method, publicKey)){
+							return new VerificationResult(msgGraphs.get(i).getName(), msg.getTriples(), false, "Invalid signature");
+						}
+					}
+					return null;
+				}
+			});
+		}
+		return WorkerPool.invokeUntilResult(tasks);
+	}
+	
+	/**
+	 * MSGs with assigned signatures (see {@link SignatureAlgorithmTummarello2005#assignSignatures})
+	 */
+	private static class SignatureAssignment {
+		private ArrayList<MSG> msgs=new ArrayList<MSG>();									//MSGs with signatures (in order of verification)
+		private ArrayList<NamedGraph> msgGraphs=new ArrayList<NamedGraph>();				//Graph of each MSG
+		private VerificationResult failure;													//Missing or unused signature (null if there is none)
+		private String error;																//Exception message of verifyGraph for the failure
+	}
+	
+	/**
+	 * Assign cached signatures to the MSGs of all graphs and sub graphs
+	 * 
+	 * @param gc  {@link GraphCollection} to verify (canonicalized and hashed)
+	 * @return  MSGs with assigned signatures up to the first missing or unused signature
+	 */
+	private static SignatureAssignment assignSignatures(GraphCollection gc){
+		SignatureAssignment assignment=new SignatureAssignment();
 		for (NamedGraph g:gc.getGraphs()){
-			if (!verifyGraph(g, publicKey)){
+			if (!assignSignatures(g, assignment)){
+				break;
+			}
+		}
+		return assignment;
+	}
+	
+	/**
+	 * Assign cached signatures to the MSGs of a named graph (recursive, same order as in {@link #verifyGraph(NamedGraph, String, Key)})
+	 * Stops at the first missing or unused signature, which is stored in the assignment.
+	 * 
+	 * @param g  {@link NamedGraph} to verifiy
+	 * @param assignment  assignment the MSGs are added to
+	 * @return  true if all signatures have been assigned, false if a signature is missing or unused
+	 */
+	private static boolean assignSignatures(NamedGraph g, SignatureAssignment assignment){
+		ArrayList<String[]> msgSigs=g.getMSGSignatures();
+		SignatureIndex index=(msgSigs!=null) ? new SignatureIndex(msgSigs) : null;
+		
+		for (MSG msg:g.getMSGs()){
+			ArrayList<Triple> triples=msg.getTriples();
+			//Ignore empty MSGs
+			if (!triples.isEmpty()){
+				//Assign cached signatures to corresponding MSGs
+				if (index!=null){
+					String[] msgSig=index.take(triples);
+					if (msgSig!=null){
+						msg.setCertificate(msgSig[3]);
+						msg.setSignature(msgSig[4]);
+					}
+				}
+				if (msg.getSignature()==null || msg.getHash()==null){
+					assignment.failure=new VerificationResult(g.getName(), triples, false, "No signature found");
+					assignment.error="No signature/hash found for MSG:\n"
+							+msg
+							+" \n"
+							+g;
+					return false;
+				}
+				assignment.msgs.add(msg);
+				assignment.msgGraphs.add(g);
+			}
+		}
+		
+		//Unused MSG Signatures?
+		//This is a sign for removed MSGs/triples
+		if (index!=null){
+			String[] msgSig=index.firstUnused();
+			if (msgSig!=null){
+				assignment.failure=new VerificationResult(g.getName(), null, false, "Unused MSG reification signature");
+				assignment.error="Unused MSG reification signature detected. "
+						+"Probably due to MSG/triple removal after signing:\n"
+						+"Reification: "+msgSig[0]+" "+msgSig[1]+" "+msgSig[2]+"\n"
+						+"Cert: "+msgSig[3]+"\n"
+						+"Sig: "+msgSig[4]+"\n";
 				return false;
 			}
 		}
 		
+		//Assign signatures in sub graphs
+		for (NamedGraph subG:g.getChildren()){
+			if (!assignSignatures(subG, assignment)){
+				return false;
+			}
+		}
 		return true;
 	}
 	
@@ -330,12 +718,14 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 	 * Verify a named graph (recursive) by verifying each individual MSG in it
 	 * 
 	 * @param g  {@link NamedGraph} to verifiy
+	 * @param method  signature method (see {@link SignatureMethod})
 	 * @param publicKey  public key used for cryptographic signature verificaton
 	 * @return  true if successfully verified, false otherwise
 	 * @throws Exception  if signatures are missing or if there are signatures for removed MSGs
 	 */
-	private boolean verifyGraph(NamedGraph g, Key publicKey) throws Exception {
+	private boolean verifyGraph(NamedGraph g, String method, Key publicKey) throws Exception {
 		ArrayList<String[]> msgSigs=g.getMSGSignatures();
+		SignatureIndex index=(msgSigs!=null) ? new SignatureIndex(msgSigs) : null;
 		
 		//Verify all MSGs
 		for (MSG msg:g.getMSGs()){
@@ -344,16 +734,11 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 			if (!triples.isEmpty()){
 				
 				//Assign cached signatures to corresponding MSGs
-				if (msgSigs!=null){
-					Iterator<String[]> it = msgSigs.iterator();
-					while (it.hasNext()) {
-						String[] msgSig=it.next();
-						if (msg.containsTriple(new String[]{msgSig[0],msgSig[1],msgSig[2]})){
-							msg.setCertificate(msgSig[3]);
-							msg.setSignature(msgSig[4]);
-							it.remove();
-							break;
-						}
+				if (index!=null){
+					String[] msgSig=index.take(triples);
+					if (msgSig!=null){
+						msg.setCertificate(msgSig[3]);
+						msg.setSignature(msgSig[4]);
 					}
 				}
 				
@@ -364,21 +749,7 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 					//Strip Quotes
 					sigString=sigString.substring(1, sigString.length()-1);
 					
-			    	//Decrypt signature using the provided public key
-					Cipher cipher = Cipher.getInstance( publicKey.getAlgorithm() );
-					cipher.init(Cipher.DECRYPT_MODE, publicKey);
-					
-					//Decrypt
-					byte [] sigDecrypted = null;
-					try {
-						sigDecrypted=cipher.doFinal( Base64.decodeBase64( sigString ));
-					} catch (Exception e){
-						return false;
-					}
-					
-					//Are sigDecrypted and hash equal?
-					byte [] hash=sigHash.toByteArray();
-					if (!Arrays.equals(sigDecrypted,hash)){
+					if (!checkMSGSignature(sigHash, sigString, method, publicKey)){
 						return false;
 					}
 					
@@ -394,8 +765,9 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 		
 		//Unused MSG Signatures?
 		//This is a sign for removed MSGs/triples
-		if (msgSigs.size()>0){
-			for (String[] msgSig:msgSigs){
+		if (index!=null){
+			String[] msgSig=index.firstUnused();
+			if (msgSig!=null){
 				throw new Exception("Unused MSG reification signature detected. "
 						+"Probably due to MSG/triple removal after signing:\n"
 						+"Reification: "+msgSig[0]+" "+msgSig[1]+" "+msgSig[2]+"\n"
@@ -407,7 +779,7 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 		
 		//Verify MSGs in sub graphs
 		for (NamedGraph subG:g.getChildren()){
-			if (!verifyGraph(subG, publicKey)){
+			if (!verifyGraph(subG, method, publicKey)){
 				return false;
 			}
 		}
@@ -415,6 +787,311 @@ public class SignatureAlgorithmTummarello2005 implements SignatureAlgorithmInter
 		return true;
 	}
 	
+	/**
+	 * Check a MSG signature with a public key (see {@link SignatureMethod#verify(String, Key, byte[], byte[])})
+	 * 
+	 * @param hash  hash of the MSG
+	 * @param signature  Base64 signature value (without quotes)
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param publicKey  public key used for cryptographic signature verificaton
+	 * @return  true if the signature matches the hash, false otherwise
+	 * @throws Exception  if the key does not fit the signature method
+	 */
+	private static boolean checkMSGSignature(BigInteger hash, String signature, String method, Key publicKey) throws Exception {
+		return SignatureMethod.verify( method, publicKey, hash.toByteArray(), Base64.decodeBase64( signature ) );
+	}
+	
+	/**
+	 * Index of the cached MSG signatures of a graph by their reified triple (subject, predicate, object)
+	 * A MSG gets the first unused signature (in list order) whose triple is contained in the MSG,
+	 * so each triple of the MSG is looked up once instead of comparing all signatures with all triples.
+	 */
+	private static class SignatureIndex {
+		private ArrayList<String[]> msgSigs;										//Cached MSG signatures
+		private boolean[] used;														//Signatures which have been assigned to a MSG
+		private HashMap<List<String>,ArrayDeque<Integer>> positions;				//Positions of the signatures by their triple (ascending)
+		private int unused;															//Positions before this one are used
+		
+		/**
+		 * Creates the index of cached MSG signatures
+		 * 
+		 * @param msgSigs  cached MSG signatures (subject, predicate, object, certificate, signature)
+		 */
+		private SignatureIndex(ArrayList<String[]> msgSigs){
+			this.msgSigs=msgSigs;
+			used=new boolean[msgSigs.size()];
+			positions=new HashMap<List<String>,ArrayDeque<Integer>>(msgSigs.size()*2);
+			for (int i=0; i<msgSigs.size(); i++){
+				String[] msgSig=msgSigs.get(i);
+				List<String> key=Arrays.asList(msgSig[0], msgSig[1], msgSig[2]);
+				ArrayDeque<Integer> list=positions.get(key);
+				if (list==null){
+					list=new ArrayDeque<Integer>(1);
+					positions.put(key, list);
+				}
+				list.add(i);
+			}
+		}
+		
+		/**
+		 * Takes the first unused signature whose triple is one of the given triples
+		 * 
+		 * @param triples  triples of a MSG
+		 * @return  signature data or null if there is no unused signature for the triples
+		 */
+		private String[] take(ArrayList<Triple> triples){
+			ArrayDeque<Integer> best=null;
+			for (Triple t:triples){
+				ArrayDeque<Integer> list=positions.get(Arrays.asList(t.getSubject(), t.getPredicate(), t.getObject()));
+				if (list!=null && !list.isEmpty() && (best==null || list.peek()<best.peek())){
+					best=list;
+				}
+			}
+			if (best==null){
+				return null;
+			}
+			int i=best.poll();
+			used[i]=true;
+			return msgSigs.get(i);
+		}
+		
+		/**
+		 * Gets the first signature which has not been assigned to a MSG
+		 * 
+		 * @return  signature data or null if all signatures have been assigned
+		 */
+		private String[] firstUnused(){
+			while (unused<used.length && used[unused]){
+				unused++;
+			}
+			return (unused<used.length) ? msgSigs.get(unused) : null;
+		}
+	}
+	
+	//######################################################## Selective Verification
+	
+	/**
+	 * Verify only the MSGs which contain certain triples
+	 * Graphs without these triples are neither canonicalized nor hashed and only the MSGs with these triples are checked.
+	 * The graph collection must have been prepared like for 'verify' but must not be canonicalized yet
+	 * (see {@link SignatureVerifier#verifyTriples(GraphCollection, Key, Collection)}).
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data and without signature graph
+	 * @param publicKey  public key used for cryptographic signature verificaton
+	 * @param selectedTriples  triples whose MSGs are verified
+	 * @return  one result per MSG, one (failed) result per triple which has not been found and one (failed) result
+	 *          per found triple which is not part of any MSG (reification and signature statements)
+	 * @throws Exception  if incomplete reifications are detected
+	 */
+	public ArrayList<VerificationResult> verifyTriples(GraphCollection gc, Key publicKey, Collection<Triple> selectedTriples) throws Exception {
+		//Find the triples before canonicalization changes blank node labels (triple objects are kept)
+		HashSet<List<String>> keys=new HashSet<List<String>>();
+		for (Triple t:selectedTriples){
+			keys.add(Arrays.asList(t.getSubject(), t.getPredicate(), t.getObject()));
+		}
+		HashSet<List<String>> found=new HashSet<List<String>>();
+		IdentityHashMap<Triple,List<String>> selected=new IdentityHashMap<Triple,List<String>>();
+		ArrayList<NamedGraph> graphs=new ArrayList<NamedGraph>();
+		for (NamedGraph g:gc.getGraphs()){
+			findTriples(g, keys, found, selected, graphs);
+		}
+		
+		//Triples which are not part of the graph collection cannot be verified
+		ArrayList<VerificationResult> results=new ArrayList<VerificationResult>();
+		for (Triple t:selectedTriples){
+			if (!found.contains(Arrays.asList(t.getSubject(), t.getPredicate(), t.getObject()))){
+				ArrayList<Triple> missing=new ArrayList<Triple>(1);
+				missing.add(t);
+				results.add(new VerificationResult(null, missing, false, "Triple not found"));
+			}
+		}
+		
+		//Verify MSGs with the triples
+		String digestAlgo=gc.getSignature().getDigestGen().getAlgorithm().toLowerCase();
+		String method=SignatureMethod.getMethod(gc.getSignature(), publicKey);
+		Set<Triple> covered=Collections.newSetFromMap(new IdentityHashMap<Triple,Boolean>());
+		for (NamedGraph g:graphs){
+			canonicalizeTriples(g);
+			verifyMSGs(g, method, publicKey, digestAlgo, selected.keySet(), covered, results);
+		}
+		
+		//Found triples which are not part of any MSG (removed by canonicalization) are not signed
+		HashSet<List<String>> coveredKeys=new HashSet<List<String>>();
+		for (Triple t:covered){
+			coveredKeys.add(selected.get(t));
+		}
+		for (Triple t:selectedTriples){
+			List<String> key=Arrays.asList(t.getSubject(), t.getPredicate(), t.getObject());
+			if (found.contains(key) && !coveredKeys.contains(key)){
+				ArrayList<Triple> unsigned=new ArrayList<Triple>(1);
+				unsigned.add(t);
+				results.add(new VerificationResult(null, unsigned, false, "Triple not part of any MSG"));
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Verify only the MSGs of a named graph and its sub graphs
+	 * Other graphs are neither canonicalized nor hashed.
+	 * The graph collection must have been prepared like for 'verify' but must not be canonicalized yet
+	 * (see {@link SignatureVerifier#verifyGraph(GraphCollection, Key, String)}).
+	 * 
+	 * @param gc  {@link GraphCollection} with signature data and without signature graph
+	 * @param publicKey  public key used for cryptographic signature verificaton
+	 * @param graphName  name of the named graph
+	 * @return  one result per MSG and one (failed) result per graph with unused MSG signatures
+	 * @throws Exception  if the graph does not exist or if incomplete reifications are detected
+	 */
+	public ArrayList<VerificationResult> verifyGraph(GraphCollection gc, Key publicKey, String graphName) throws Exception {
+		//Find graph
+		NamedGraph graph=null;
+		for (NamedGraph g:gc.getGraphs()){
+			graph=findGraph(g, graphName);
+			if (graph!=null){
+				break;
+			}
+		}
+		if (graph==null){
+			throw new Exception("Graph '"+graphName+"' not found");
+		}
+		
+		//Verify MSGs of the graph and its sub graphs
+		ArrayList<VerificationResult> results=new ArrayList<VerificationResult>();
+		String digestAlgo=gc.getSignature().getDigestGen().getAlgorithm().toLowerCase();
+		String method=SignatureMethod.getMethod(gc.getSignature(), publicKey);
+		verifyGraphMSGs(graph, method, publicKey, digestAlgo, results);
+		return results;
+	}
+	
+	/**
+	 * Verify MSGs of a graph and its sub graphs (recursive, see {@link #verifyGraph(GraphCollection, Key, String)})
+	 * 
+	 * @param g
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param publicKey
+	 * @param digestAlgo
+	 * @param results  list the results are added to
+	 * @throws Exception  if incomplete reifications are detected
+	 */
+	private void verifyGraphMSGs(NamedGraph g, String method, Key publicKey, String digestAlgo, ArrayList<VerificationResult> results) throws Exception {
+		canonicalizeTriples(g);
+		verifyMSGs(g, method, publicKey, digestAlgo, null, null, results);
+		for (NamedGraph subG:g.getChildren()){
+			verifyGraphMSGs(subG, method, publicKey, digestAlgo, results);
+		}
+	}
+	
+	/**
+	 * Find graphs which contain certain triples (recursive)
+	 * 
+	 * @param g
+	 * @param keys  triples to find (subject, predicate, object)
+	 * @param found  found triples (subject, predicate, object)
+	 * @param selected  found triple objects with their triples before canonicalization (subject, predicate, object)
+	 * @param graphs  graphs which contain found triples
+	 */
+	private static void findTriples(NamedGraph g, HashSet<List<String>> keys, HashSet<List<String>> found, IdentityHashMap<Triple,List<String>> selected, ArrayList<NamedGraph> graphs){
+		boolean contains=false;
+		for (Triple t:g.getTriples()){
+			List<String> key=Arrays.asList(t.getSubject(), t.getPredicate(), t.getObject());
+			if (keys.contains(key)){
+				found.add(key);
+				selected.put(t, key);
+				contains=true;
+			}
+		}
+		if (contains){
+			graphs.add(g);
+		}
+		for (NamedGraph subG:g.getChildren()){
+			findTriples(subG, keys, found, selected, graphs);
+		}
+	}
+	
+	/**
+	 * Find a graph by its name (recursive)
+	 * 
+	 * @param g
+	 * @param graphName
+	 * @return  graph or null if not found
+	 */
+	private static NamedGraph findGraph(NamedGraph g, String graphName){
+		if (g.getName().equals(graphName)){
+			return g;
+		}
+		for (NamedGraph subG:g.getChildren()){
+			NamedGraph found=findGraph(subG, graphName);
+			if (found!=null){
+				return found;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Verify MSGs of a canonicalized graph
+	 * Signatures are assigned to all MSGs (like in 'verify'), but only selected MSGs are hashed and checked.
+	 * 
+	 * @param g  canonicalized graph (not split into MSGs)
+	 * @param method  signature method (see {@link SignatureMethod})
+	 * @param publicKey
+	 * @param digestAlgo
+	 * @param selected  MSGs with one of these triples are checked (null to check all MSGs and unused signatures)
+	 * @param covered  set the selected triples of checked MSGs are added to (null if selected is null)
+	 * @param results  list the results are added to
+	 * @throws Exception
+	 */
+	private void verifyMSGs(NamedGraph g, String method, Key publicKey, String digestAlgo, Set<Triple> selected, Set<Triple> covered, ArrayList<VerificationResult> results) throws Exception {
+		ArrayList<String[]> msgSigs=g.getMSGSignatures();
+		SignatureIndex index=(msgSigs!=null) ? new SignatureIndex(msgSigs) : null;
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		for (MSG msg:NamedGraph.splitIntoMSGs(g.getTriples())){
+			String[] msgSig=(index!=null) ? index.take(msg.getTriples()) : null;
+			if (selected!=null){
+				if (!containsAny(msg, selected)){
+					continue;
+				}
+				for (Triple t:msg.getTriples()){
+					if (selected.contains(t)){
+						covered.add(t);
+					}
+				}
+			}
+			
+			//Hash and check MSG
+			hashMSG(msg, d);
+			if (msgSig==null){
+				results.add(new VerificationResult(g.getName(), msg.getTriples(), false, "No signature found"));
+			}else if (checkMSGSignature(msg.getHash(), msgSig[4].substring(1, msgSig[4].length()-1), method, publicKey)){
+				results.add(new VerificationResult(g.getName(), msg.getTriples(), true, null));
+			}else{
+				results.add(new VerificationResult(g.getName(), msg.getTriples(), false, "Invalid signature"));
+			}
+		}
+		
+		//Unused MSG Signatures? (sign for removed MSGs/triples)
+		if (selected==null && index!=null && index.firstUnused()!=null){
+			results.add(new VerificationResult(g.getName(), null, false, "Unused MSG reification signature"));
+		}
+	}
+	
+	/**
+	 * Does a MSG contain one of the selected triple objects?
+	 * 
+	 * @param msg
+	 * @param selected  selected triple objects
+	 * @return  true if the MSG contains a selected triple
+	 */
+	private static boolean containsAny(MSG msg, Set<Triple> selected){
+		for (Triple t:msg.getTriples()){
+			if (selected.contains(t)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	//######################################################## Get Name
 	
 	public String getName() {
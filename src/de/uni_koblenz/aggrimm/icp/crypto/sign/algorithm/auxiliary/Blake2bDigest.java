@@ -0,0 +1,234 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.security.MessageDigestSpi;
+
+/**
+ * Pure Java implementation of the BLAKE2b digest (unkeyed, sequential mode)
+ * Provided as "BLAKE2B-512" and "BLAKE2B-256" by {@link FrameworkProvider}.
+ *
+ * Based on: Saarinen, M-J., Aumasson, J-P.: The BLAKE2 Cryptographic Hash and Message Authentication Code (MAC). RFC 7693 (2015)
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class Blake2bDigest extends MessageDigestSpi implements Cloneable {
+	private static final int BLOCK_LENGTH=128;												//Block length in bytes
+
+	//Initialization vector (Section 2.6)
+	private static final long[] IV={
+		0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+		0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+	};
+
+	//Message word schedule permutations (Section 2.7)
+	private static final byte[][] SIGMA={
+		{  0,  1,  2,  3,  4,  5,  6,  7,  8,  9, 10, 11, 12, 13, 14, 15 },
+		{ 14, 10,  4,  8,  9, 15, 13,  6,  1, 12,  0,  2, 11,  7,  5,  3 },
+		{ 11,  8, 12,  0,  5,  2, 15, 13, 10, 14,  3,  6,  7,  1,  9,  4 },
+		{  7,  9,  3,  1, 13, 12, 11, 14,  2,  6,  5, 10,  4,  0, 15,  8 },
+		{  9,  0,  5,  7,  2,  4, 10, 15, 14,  1, 11, 12,  6,  8,  3, 13 },
+		{  2, 12,  6, 10,  0, 11,  8,  3,  4, 13,  7,  5, 15, 14,  1,  9 },
+		{ 12,  5,  1, 15, 14, 13,  4, 10,  0,  7,  6,  3,  9,  2,  8, 11 },
+		{ 13, 11,  7, 14, 12,  1,  3,  9,  5,  0, 15,  4,  8,  6,  2, 10 },
+		{  6, 15, 14,  9, 11,  3,  0,  8, 12,  2, 13,  7,  1,  4, 10,  5 },
+		{ 10,  2,  8,  4,  7,  6,  1,  5, 15, 11,  9, 14,  3, 12, 13,  0 }
+	};
+
+	private final int digestLength;															//Digest length in bytes (1 to 64)
+	private long[] h;																		//Chained state
+	private long[] m;																		//Message words of current block
+	private byte[] buffer;																	//Buffered input (last block is only compressed when digest is requested)
+	private int bufferLength;																//Number of bytes in buffer
+	private long t0;																		//Byte counter (low word)
+	private long t1;																		//Byte counter (high word)
+
+	//######################################################## Constructors
+
+	/**
+	 * Creates a new BLAKE2b digest
+	 *
+	 * @param digestLength  digest length in bytes (1 to 64)
+	 */
+	public Blake2bDigest(int digestLength){
+		if (digestLength<1 || digestLength>64){
+			throw new IllegalArgumentException("Invalid BLAKE2b digest length: "+digestLength);
+		}
+		this.digestLength=digestLength;
+		this.h=new long[8];
+		this.m=new long[16];
+		this.buffer=new byte[BLOCK_LENGTH];
+		engineReset();
+	}
+
+	/**
+	 * BLAKE2b with 512 bit digest (service class of {@link FrameworkProvider})
+	 */
+	public static final class Blake2b512 extends Blake2bDigest {
+		public Blake2b512(){
+			super(64);
+		}
+	}
+
+	/**
+	 * BLAKE2b with 256 bit digest (service class of {@link FrameworkProvider})
+	 */
+	public static final class Blake2b256 extends Blake2bDigest {
+		public Blake2b256(){
+			super(32);
+		}
+	}
+
+	//######################################################## MessageDigestSpi
+
+	protected int engineGetDigestLength(){
+		return digestLength;
+	}
+
+	protected void engineReset(){
+		System.arraycopy(IV, 0, h, 0, 8);
+		//Parameter block: digest length, no key, fanout 1, depth 1 (Section 2.5)
+		h[0]^=0x01010000L ^ digestLength;
+		bufferLength=0;
+		t0=0;
+		t1=0;
+	}
+
+	protected void engineUpdate(byte input){
+		if (bufferLength==BLOCK_LENGTH){
+			increaseCounter(BLOCK_LENGTH);
+			compress(buffer, 0, false);
+			bufferLength=0;
+		}
+		buffer[bufferLength++]=input;
+	}
+
+	protected void engineUpdate(byte[] input, int offset, int len){
+		if (len<=0){
+			return;
+		}
+		//Fill and compress buffer if more input follows
+		if (bufferLength>0){
+			int n=Math.min(BLOCK_LENGTH-bufferLength, len);
+			System.arraycopy(input, offset, buffer, bufferLength, n);
+			bufferLength+=n;
+			offset+=n;
+			len-=n;
+			if (len==0){
+				return;
+			}
+			increaseCounter(BLOCK_LENGTH);
+			compress(buffer, 0, false);
+			bufferLength=0;
+		}
+		//Compress full blocks directly from input (keep the last block)
+		while (len>BLOCK_LENGTH){
+			increaseCounter(BLOCK_LENGTH);
+			compress(input, offset, false);
+			offset+=BLOCK_LENGTH;
+			len-=BLOCK_LENGTH;
+		}
+		//Buffer remaining input
+		System.arraycopy(input, offset, buffer, 0, len);
+		bufferLength=len;
+	}
+
+	protected byte[] engineDigest(){
+		//Compress last block (padded with zeros)
+		increaseCounter(bufferLength);
+		for (int i=bufferLength; i<BLOCK_LENGTH; i++){
+			buffer[i]=0;
+		}
+		compress(buffer, 0, true);
+		//Output state in little endian byte order
+		byte[] out=new byte[digestLength];
+		for (int i=0; i<digestLength; i++){
+			out[i]=(byte)(h[i>>3] >>> (8*(i&7)));
+		}
+		engineReset();
+		return out;
+	}
+
+	public Object clone() throws CloneNotSupportedException {
+		Blake2bDigest c=(Blake2bDigest)super.clone();
+		c.h=h.clone();
+		c.m=new long[16];
+		c.buffer=buffer.clone();
+		return c;
+	}
+
+	//######################################################## Compression
+
+	/**
+	 * Increases the byte counter
+	 *
+	 * @param n  number of bytes
+	 */
+	private void increaseCounter(int n){
+		long previous=t0;
+		t0+=n;
+		//Unsigned overflow of low word
+		if ((t0 ^ Long.MIN_VALUE) < (previous ^ Long.MIN_VALUE)){
+			t1++;
+		}
+	}
+
+	/**
+	 * Compression function F (Section 3.2)
+	 *
+	 * @param block  input bytes
+	 * @param offset  offset of block in input bytes
+	 * @param last  true for the final block, false otherwise
+	 */
+	private void compress(byte[] block, int offset, boolean last){
+		//Read message words (little endian)
+		for (int i=0; i<16; i++){
+			int o=offset+i*8;
+			m[i]=(block[o] & 0xffL)
+				| ((block[o+1] & 0xffL) << 8)
+				| ((block[o+2] & 0xffL) << 16)
+				| ((block[o+3] & 0xffL) << 24)
+				| ((block[o+4] & 0xffL) << 32)
+				| ((block[o+5] & 0xffL) << 40)
+				| ((block[o+6] & 0xffL) << 48)
+				| ((block[o+7] & 0xffL) << 56);
+		}
+
+		//Initialize working vector (kept in local variables)
+		long v0=h[0], v1=h[1], v2=h[2], v3=h[3], v4=h[4], v5=h[5], v6=h[6], v7=h[7];
+		long v8=IV[0], v9=IV[1], v10=IV[2], v11=IV[3];
+		long v12=IV[4]^t0, v13=IV[5]^t1, v14=last ? ~IV[6] : IV[6], v15=IV[7];
+
+		//Twelve rounds of mixing (mixing function G of Section 3.1 inlined)
+		for (int r=0; r<12; r++){
+			byte[] s=SIGMA[r%10];
+			//Columns
+			v0+=v4+m[s[0]]; v12=Long.rotateRight(v12^v0, 32); v8+=v12; v4=Long.rotateRight(v4^v8, 24);
+			v0+=v4+m[s[1]]; v12=Long.rotateRight(v12^v0, 16); v8+=v12; v4=Long.rotateRight(v4^v8, 63);
+			v1+=v5+m[s[2]]; v13=Long.rotateRight(v13^v1, 32); v9+=v13; v5=Long.rotateRight(v5^v9, 24);
+			v1+=v5+m[s[3]]; v13=Long.rotateRight(v13^v1, 16); v9+=v13; v5=Long.rotateRight(v5^v9, 63);
+			v2+=v6+m[s[4]]; v14=Long.rotateRight(v14^v2, 32); v10+=v14; v6=Long.rotateRight(v6^v10, 24);
+			v2+=v6+m[s[5]]; v14=Long.rotateRight(v14^v2, 16); v10+=v14; v6=Long.rotateRight(v6^v10, 63);
+			v3+=v7+m[s[6]]; v15=Long.rotateRight(v15^v3, 32); v11+=v15; v7=Long.rotateRight(v7^v11, 24);
+			v3+=v7+m[s[7]]; v15=Long.rotateRight(v15^v3, 16); v11+=v15; v7=Long.rotateRight(v7^v11, 63);
+			//Diagonals
+			v0+=v5+m[s[8]]; v15=Long.rotateRight(v15^v0, 32); v10+=v15; v5=Long.rotateRight(v5^v10, 24);
+			v0+=v5+m[s[9]]; v15=Long.rotateRight(v15^v0, 16); v10+=v15; v5=Long.rotateRight(v5^v10, 63);
+			v1+=v6+m[s[10]]; v12=Long.rotateRight(v12^v1, 32); v11+=v12; v6=Long.rotateRight(v6^v11, 24);
+			v1+=v6+m[s[11]]; v12=Long.rotateRight(v12^v1, 16); v11+=v12; v6=Long.rotateRight(v6^v11, 63);
+			v2+=v7+m[s[12]]; v13=Long.rotateRight(v13^v2, 32); v8+=v13; v7=Long.rotateRight(v7^v8, 24);
+			v2+=v7+m[s[13]]; v13=Long.rotateRight(v13^v2, 16); v8+=v13; v7=Long.rotateRight(v7^v8, 63);
+			v3+=v4+m[s[14]]; v14=Long.rotateRight(v14^v3, 32); v9+=v14; v4=Long.rotateRight(v4^v9, 24);
+			v3+=v4+m[s[15]]; v14=Long.rotateRight(v14^v3, 16); v9+=v14; v4=Long.rotateRight(v4^v9, 63);
+		}
+
+		//Update state
+		h[0]^=v0 ^ v8;
+		h[1]^=v1 ^ v9;
+		h[2]^=v2 ^ v10;
+		h[3]^=v3 ^ v11;
+		h[4]^=v4 ^ v12;
+		h[5]^=v5 ^ v13;
+		h[6]^=v6 ^ v14;
+		h[7]^=v7 ^ v15;
+	}
+
+}
@@ -0,0 +1,575 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Persistent cache for digests of frequently hashed terms (e.g. vocabulary IRIs like rdf:type).
+ * There is one cache per digest algorithm, so digests of different algorithms never mix.
+ *
+ * Each cache is backed by a memory-mapped table file in the cache directory ("algorithm.digests").
+ * The table is mapped when the cache of a digest algorithm is used the first time during a run.
+ * Terms which are hashed repeatedly during a run are written to the table by {@link #saveAll()},
+ * so these terms skip hashing from the first triple of the next run on.
+ *
+ * The cache is disabled unless a directory is set with {@link #setDirectory(File)}
+ * or with the system property "signingframework.digestcache".
+ *
+ * Signing and verification trust the digests of the table, so tables are authenticated with a HMAC (HmacSHA256).
+ * The secret MAC key is kept in a key file outside the cache directory (default: ~/.signingframework/digestcache.key,
+ * see {@link #setKeyFile(File)} or the system property "signingframework.digestcache.key"). It is created when a table is saved
+ * the first time. Tables with an invalid MAC, invalid offsets or lengths are ignored and the digests are calculated.
+ *
+ * Table file layout (integers are big endian):
+ * 	- Header:	magic number, version, digest length, slot count, entry count
+ * 	- Slots:	one integer per slot with the file offset of an entry (0 for empty slots), open addressing with linear probing
+ * 	- Entries:	key length, key (UTF-8), digest
+ * 	- MAC:		HmacSHA256 of all previous bytes
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class DigestCache {
+	private static final int MAGIC=0x44474331;												//File magic number ("DGC1")
+	private static final int VERSION=2;														//File format version
+	private static final int HEADER_SIZE=20;												//Header size in bytes
+	private static final String FILE_SUFFIX=".digests";										//Suffix of table files
+	private static final String MAC_ALGORITHM="HmacSHA256";									//MAC algorithm of table files
+	private static final int MAC_SIZE=32;													//MAC size in bytes
+	private static final int MAC_KEY_SIZE=32;												//MAC key size in bytes
+
+	private static File directory=initDirectory();											//Cache directory (null if cache is disabled)
+	private static File keyFile=initKeyFile();												//File of the secret MAC key
+	private static byte[] macKey;															//Secret MAC key (null if not loaded yet)
+	private static int minOccurrences=2;													//Number of occurrences before a term is persisted
+	private static int maxEntries=65536;													//Maximum number of entries per table
+	private static final ConcurrentHashMap<String,DigestCache> caches=new ConcurrentHashMap<String,DigestCache>();
+
+	private final String algorithm;															//Digest algorithm name (lower case)
+	private final File file;																//Table file
+	private MappedByteBuffer table;															//Mapped table (null if there is no valid table file)
+	private int slotCount;																	//Slot count of mapped table
+	private int digestLength;																//Digest length of mapped table
+	private final ConcurrentHashMap<String,byte[]> hot;										//Terms seen repeatedly during this run (not in table yet)
+	private final ConcurrentHashMap<String,AtomicInteger> occurrences;						//Occurrence counters for terms not in table yet
+
+	//######################################################## Constructors
+
+	private DigestCache(String algorithm, File file){
+		this.algorithm=algorithm;
+		this.file=file;
+		this.hot=new ConcurrentHashMap<String,byte[]>();
+		this.occurrences=new ConcurrentHashMap<String,AtomicInteger>();
+		load();
+	}
+
+	//######################################################## Configuration
+
+	/**
+	 * Gets the initial cache directory from the system property "signingframework.digestcache"
+	 *
+	 * @return  cache directory or null if the property is not set
+	 */
+	private static File initDirectory(){
+		String dir=System.getProperty("signingframework.digestcache");
+		if (dir==null || dir.length()==0){
+			return null;
+		}
+		return new File(dir);
+	}
+
+	/**
+	 * Gets the initial MAC key file from the system property "signingframework.digestcache.key"
+	 *
+	 * @return  MAC key file (~/.signingframework/digestcache.key if the property is not set)
+	 */
+	private static File initKeyFile(){
+		String path=System.getProperty("signingframework.digestcache.key");
+		if (path==null || path.length()==0){
+			return new File(new File(System.getProperty("user.home"), ".signingframework"), "digestcache.key");
+		}
+		return new File(path);
+	}
+
+	/**
+	 * Sets the file of the secret MAC key which authenticates the tables
+	 * The file must not be writable by anyone who must not be able to change digests (keep it outside the cache directory).
+	 * Already loaded caches are discarded (unsaved terms get lost).
+	 *
+	 * @param file  MAC key file (created when a table is saved if it does not exist)
+	 */
+	public static synchronized void setKeyFile(File file){
+		keyFile=file;
+		macKey=null;
+		caches.clear();
+	}
+
+	public static File getKeyFile(){
+		return keyFile;
+	}
+
+	/**
+	 * Sets the cache directory and enables the cache
+	 * Already loaded caches are discarded (unsaved terms get lost).
+	 *
+	 * @param dir  cache directory, null disables the cache
+	 */
+	public static synchronized void setDirectory(File dir){
+		directory=dir;
+		caches.clear();
+	}
+
+	public static File getDirectory(){
+		return directory;
+	}
+
+	public static boolean isEnabled(){
+		return directory!=null;
+	}
+
+	/**
+	 * Sets how often a term must be hashed during a run before it is persisted
+	 *
+	 * @param count  minimum number of occurrences
+	 */
+	public static void setMinOccurrences(int count){
+		minOccurrences=count;
+	}
+
+	/**
+	 * Sets the maximum number of entries per table
+	 *
+	 * @param count  maximum number of entries
+	 */
+	public static void setMaxEntries(int count){
+		maxEntries=count;
+	}
+
+	/**
+	 * Gets the cache for a digest algorithm (creates and loads it if necessary)
+	 *
+	 * @param algorithm  digest algorithm name
+	 * @return  cache for the digest algorithm or null if the cache is disabled
+	 */
+	public static DigestCache getInstance(String algorithm){
+		File dir=directory;
+		if (dir==null){
+			return null;
+		}
+		String name=algorithm.toLowerCase();
+		DigestCache cache=caches.get(name);
+		if (cache==null){
+			synchronized (DigestCache.class){
+				cache=caches.get(name);
+				if (cache==null){
+					cache=new DigestCache(name, new File(dir, name.replaceAll("[^a-z0-9]+", "-")+FILE_SUFFIX));
+					caches.put(name, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	//######################################################## Digest
+
+	/**
+	 * Calculates the digest of a term using the cache of the digest algorithm if the cache is enabled
+	 * The returned array may be shared and must not be modified.
+	 *
+	 * @param term  term to hash
+	 * @param d  digest method used for hashing
+	 * @return  digest of the UTF-8 representation of the term
+	 */
+	public static byte[] digest(String term, MessageDigest d){
+		DigestCache cache=getInstance(d.getAlgorithm());
+		if (cache==null){
+			return d.digest(term.getBytes(StandardCharsets.UTF_8));
+		}
+		return cache.get(term, d);
+	}
+
+	/**
+	 * Gets the digest of a term from this cache or calculates it
+	 *
+	 * @param term  term to hash
+	 * @param d  digest method used for hashing (must use the algorithm of this cache)
+	 * @return  digest of the UTF-8 representation of the term
+	 */
+	public byte[] get(String term, MessageDigest d){
+		//Hot term of this run?
+		byte[] digest=hot.get(term);
+		if (digest!=null){
+			return digest;
+		}
+
+		//Term in table?
+		byte[] key=term.getBytes(StandardCharsets.UTF_8);
+		digest=lookup(term, key);
+		if (digest!=null){
+			return digest;
+		}
+
+		//Hash and count the term
+		digest=d.digest(key);
+		int count=0;
+		AtomicInteger counter=occurrences.get(term);
+		if (counter!=null){
+			count=counter.incrementAndGet();
+		}else if (occurrences.size()<maxEntries*4){
+			//New term (the number of tracked terms is limited)
+			counter=occurrences.putIfAbsent(term, new AtomicInteger(1));
+			count=(counter==null) ? 1 : counter.incrementAndGet();
+		}
+		if (count>0 && count>=minOccurrences && hot.size()<maxEntries){
+			hot.put(term, digest);
+			occurrences.remove(term);
+		}
+		return digest;
+	}
+
+	/**
+	 * Looks up a term in the mapped table
+	 *
+	 * @param term  term to look up
+	 * @param key  UTF-8 representation of the term
+	 * @return  digest or null if the term is not in the table
+	 */
+	private byte[] lookup(String term, byte[] key){
+		MappedByteBuffer t=table;
+		if (t==null){
+			return null;
+		}
+		int slot=(term.hashCode() & 0x7fffffff) % slotCount;
+		for (int i=0; i<slotCount; i++){
+			int offset=t.getInt(HEADER_SIZE+slot*4);
+			if (offset==0){
+				return null;
+			}
+			if (t.getInt(offset)==key.length && keyEquals(t, offset+4, key)){
+				byte[] digest=new byte[digestLength];
+				int start=offset+4+key.length;
+				for (int j=0; j<digestLength; j++){
+					digest[j]=t.get(start+j);
+				}
+				return digest;
+			}
+			slot=(slot+1)%slotCount;
+		}
+		return null;
+	}
+
+	/**
+	 * Compares a key with the key stored in the table at an offset
+	 *
+	 * @param t  mapped table
+	 * @param offset  offset of the stored key
+	 * @param key  key to compare with
+	 * @return  true if both keys are equal, false otherwise
+	 */
+	private static boolean keyEquals(MappedByteBuffer t, int offset, byte[] key){
+		for (int i=0; i<key.length; i++){
+			if (t.get(offset+i)!=key[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//######################################################## Load & Save
+
+	/**
+	 * Maps the table file of this cache (invalid, unauthenticated or missing files are ignored)
+	 */
+	private void load(){
+		if (!file.isFile()){
+			return;
+		}
+		try {
+			byte[] key=getMacKey(false);
+			if (key==null){
+				return;
+			}
+			RandomAccessFile raf=new RandomAccessFile(file, "r");
+			try {
+				MappedByteBuffer t=raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+				int length=MessageDigest.getInstance(algorithm).getDigestLength();
+				if (isValid(t, length) && MessageDigest.isEqual(mac(key, t, t.limit()-MAC_SIZE), getMac(t))){
+					digestLength=length;
+					slotCount=t.getInt(12);
+					table=t;
+				}
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e){
+			//Unreadable table - start with an empty cache
+			table=null;
+		} catch (GeneralSecurityException e){
+			//Unknown digest algorithm or MAC not available - start with an empty cache
+			table=null;
+		}
+	}
+
+	/**
+	 * Checks the header, all slot offsets and all entry lengths of a table against the size of the table
+	 *
+	 * @param t  mapped table
+	 * @param length  digest length of the digest algorithm of this cache
+	 * @return  true if all entries are inside the table, false otherwise
+	 */
+	private static boolean isValid(MappedByteBuffer t, int length){
+		long end=t.limit()-MAC_SIZE;
+		if (end<HEADER_SIZE || t.getInt(0)!=MAGIC || t.getInt(4)!=VERSION || length<=0 || t.getInt(8)!=length){
+			return false;
+		}
+		int slots=t.getInt(12);
+		long entriesStart=HEADER_SIZE+4L*slots;
+		if (slots<=0 || entriesStart>end){
+			return false;
+		}
+		for (int slot=0; slot<slots; slot++){
+			int offset=t.getInt(HEADER_SIZE+slot*4);
+			if (offset!=0){
+				if (offset<entriesStart || offset+4L>end){
+					return false;
+				}
+				int keyLength=t.getInt(offset);
+				if (keyLength<0 || offset+4L+keyLength+length>end){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the MAC stored at the end of a table
+	 *
+	 * @param t  mapped table (at least {@link #MAC_SIZE} bytes)
+	 * @return  stored MAC
+	 */
+	private static byte[] getMac(MappedByteBuffer t){
+		byte[] stored=new byte[MAC_SIZE];
+		int start=t.limit()-MAC_SIZE;
+		for (int i=0; i<MAC_SIZE; i++){
+			stored[i]=t.get(start+i);
+		}
+		return stored;
+	}
+
+	/**
+	 * Calculates the MAC of the first bytes of a buffer
+	 *
+	 * @param key  secret MAC key
+	 * @param b  buffer
+	 * @param length  number of bytes to authenticate
+	 * @return  MAC
+	 * @throws GeneralSecurityException  if the MAC algorithm is not available
+	 */
+	private static byte[] mac(byte[] key, ByteBuffer b, int length) throws GeneralSecurityException {
+		Mac m=Mac.getInstance(MAC_ALGORITHM);
+		m.init(new SecretKeySpec(key, MAC_ALGORITHM));
+		ByteBuffer data=b.duplicate();
+		data.position(0);
+		data.limit(length);
+		m.update(data);
+		return m.doFinal();
+	}
+
+	/**
+	 * Gets the secret MAC key (loads or creates the key file if necessary)
+	 *
+	 * @param create  create a new key file if it does not exist?
+	 * @return  MAC key or null if there is no key file and create is false
+	 * @throws IOException  if the key file cannot be read or written
+	 */
+	private static synchronized byte[] getMacKey(boolean create) throws IOException {
+		if (macKey!=null){
+			return macKey;
+		}
+		File f=keyFile;
+		if (!f.isFile()){
+			if (!create){
+				return null;
+			}
+			//Create key file (only readable and writable by the owner before the key is written)
+			File dir=f.getParentFile();
+			if (dir!=null && !dir.isDirectory() && !dir.mkdirs()){
+				throw new IOException("Failed to create digest cache key directory "+dir);
+			}
+			byte[] key=new byte[MAC_KEY_SIZE];
+			new SecureRandom().nextBytes(key);
+			try {
+				Path p=f.toPath();
+				if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")){
+					//Permissions are set atomically on creation
+					Files.createFile(p, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+				}else{
+					//Restrict the empty file
+					Files.createFile(p);
+					f.setReadable(false, false);
+					f.setReadable(true, true);
+					f.setWritable(false, false);
+					f.setWritable(true, true);
+				}
+				Files.write(p, key, StandardOpenOption.WRITE);
+			} catch (FileAlreadyExistsException e){
+				//Created by another process meanwhile - use that key
+			}
+		}
+		byte[] key=Files.readAllBytes(f.toPath());
+		if (key.length<MAC_KEY_SIZE){
+			throw new IOException("Invalid digest cache key file "+f);
+		}
+		macKey=key;
+		return key;
+	}
+
+	/**
+	 * Gets all entries of the mapped table
+	 *
+	 * @return  map of terms and digests
+	 */
+	private LinkedHashMap<String,byte[]> getTableEntries(){
+		LinkedHashMap<String,byte[]> entries=new LinkedHashMap<String,byte[]>();
+		MappedByteBuffer t=table;
+		if (t!=null){
+			for (int slot=0; slot<slotCount; slot++){
+				int offset=t.getInt(HEADER_SIZE+slot*4);
+				if (offset!=0){
+					byte[] key=new byte[t.getInt(offset)];
+					byte[] digest=new byte[digestLength];
+					for (int i=0; i<key.length; i++){
+						key[i]=t.get(offset+4+i);
+					}
+					for (int i=0; i<digestLength; i++){
+						digest[i]=t.get(offset+4+key.length+i);
+					}
+					entries.put(new String(key, StandardCharsets.UTF_8), digest);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes the table file of this cache (existing table entries and hot terms of this run)
+	 *
+	 * @throws IOException  if the table file cannot be written
+	 */
+	public synchronized void save() throws IOException {
+		//Nothing new to save?
+		if (hot.isEmpty()){
+			return;
+		}
+
+		//Collect entries (existing entries first, then new hot terms)
+		LinkedHashMap<String,byte[]> entries=getTableEntries();
+		for (Map.Entry<String,byte[]> e:hot.entrySet()){
+			if (entries.size()>=maxEntries){
+				break;
+			}
+			entries.put(e.getKey(), e.getValue());
+		}
+
+		//Prepare table (load factor <= 0.5)
+		int length=hot.values().iterator().next().length;
+		int slots=Math.max(16, entries.size()*2);
+		ArrayList<byte[]> keys=new ArrayList<byte[]>(entries.size());
+		int size=HEADER_SIZE+slots*4+MAC_SIZE;
+		for (String term:entries.keySet()){
+			byte[] key=term.getBytes(StandardCharsets.UTF_8);
+			keys.add(key);
+			size+=4+key.length+length;
+		}
+		ByteBuffer b=ByteBuffer.allocate(size);
+		b.putInt(MAGIC).putInt(VERSION).putInt(length).putInt(slots).putInt(entries.size());
+
+		//Write entries and fill slots
+		int offset=HEADER_SIZE+slots*4;
+		int i=0;
+		for (Map.Entry<String,byte[]> e:entries.entrySet()){
+			byte[] key=keys.get(i++);
+			int slot=(e.getKey().hashCode() & 0x7fffffff) % slots;
+			while (b.getInt(HEADER_SIZE+slot*4)!=0){
+				slot=(slot+1)%slots;
+			}
+			b.putInt(HEADER_SIZE+slot*4, offset);
+			b.position(offset);
+			b.putInt(key.length).put(key).put(e.getValue());
+			offset=b.position();
+		}
+
+		//Authenticate table
+		try {
+			b.put(mac(getMacKey(true), b, offset));
+		} catch (GeneralSecurityException e){
+			throw new IOException("Failed to authenticate digest cache table", e);
+		}
+
+		//Write to temporary file and replace table file
+		File dir=file.getParentFile();
+		if (dir!=null && !dir.isDirectory() && !dir.mkdirs()){
+			throw new IOException("Failed to create digest cache directory "+dir);
+		}
+		File temp=new File(file.getPath()+".tmp");
+		RandomAccessFile raf=new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(0);
+			b.rewind();
+			raf.getChannel().write(b);
+		} finally {
+			raf.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		//Map the new table
+		hot.clear();
+		table=null;
+		load();
+	}
+
+	/**
+	 * Writes the table files of all loaded caches
+	 *
+	 * @throws IOException  if a table file cannot be written
+	 */
+	public static void saveAll() throws IOException {
+		for (DigestCache cache:caches.values()){
+			cache.save();
+		}
+	}
+
+	//######################################################## Getters
+
+	public String getAlgorithm(){
+		return algorithm;
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+}
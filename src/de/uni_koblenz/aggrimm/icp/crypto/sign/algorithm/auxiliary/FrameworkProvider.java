@@ -0,0 +1,44 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.security.Provider;
+import java.security.Security;
+
+/**
+ * Security provider for digest algorithms which are implemented by this framework
+ * 
+ * Algorithm		Class
+ * ---------------------------------------------------------------------
+ * BLAKE2B-512		{@link Blake2bDigest.Blake2b512}
+ * BLAKE2B-256		{@link Blake2bDigest.Blake2b256}
+ *
+ * Digests can be created with MessageDigest.getInstance after calling {@link #install()}.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class FrameworkProvider extends Provider {
+	private static final long serialVersionUID = 1L;
+	
+	public static final String NAME="SigningFramework";						//Provider name
+	
+	//######################################################## Constructors
+	
+	//Provider(String,String,String) is not available before Java 9, the framework targets Java 1.7
+	@SuppressWarnings("deprecation")
+	public FrameworkProvider(){
+		super(NAME, 1.0, "Signing framework digests (BLAKE2b)");
+		put("MessageDigest.BLAKE2B-512", Blake2bDigest.Blake2b512.class.getName());
+		put("MessageDigest.BLAKE2B-256", Blake2bDigest.Blake2b256.class.getName());
+	}
+	
+	//######################################################## Installation
+	
+	/**
+	 * Adds the provider to the installed security providers (only once)
+	 */
+	public static synchronized void install(){
+		if (Security.getProvider(NAME)==null){
+			Security.addProvider(new FrameworkProvider());
+		}
+	}
+	
+}
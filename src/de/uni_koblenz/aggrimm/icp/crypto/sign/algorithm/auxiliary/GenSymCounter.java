@@ -1,5 +1,7 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
 
+import java.util.Arrays;
+
 /**
  * Simple "GenSymCounter".
  * A counter which creates strings with leading zeros as output.
@@ -48,13 +50,23 @@ public class GenSymCounter {
 	 * @throws Exception
 	 */
 	public String getNewSym() throws Exception{
+		return createSymStringFromInt(getNewValue());
+	}
+	
+	/**
+	 * Gets a new value by increasing the counter (without creating a string).
+	 * 
+	 * @return					new counter value
+	 * @throws Exception
+	 */
+	public int getNewValue() throws Exception{
 		//Increase Counter
 		counter++;
 		if (counter>maxValue){
 			throw (new Exception("Counter value ("+counter+") exceeds maximum value ("+maxValue+")"));
 		}
 		//Return
-		return createSymStringFromInt(counter);
+		return counter;
 	}
 	
 	/**
@@ -75,6 +87,15 @@ public class GenSymCounter {
 		return counter;
 	}
 	
+	/**
+	 * Gets the length of symbol strings (all values are padded to this length).
+	 * 
+	 * @return					length in characters/digits
+	 */
+	public int getLength(){
+		return length;
+	}
+	
 	/**
 	 * Creates a string representation for integer value (cast int to string and pad with leading zeros to fit length).
 	 * 
@@ -84,14 +105,16 @@ public class GenSymCounter {
 	public String createSymStringFromInt(int value){
 		//Create String from integer value
 		String s = Integer.toString(value);
-		//Pad string with leading zeros
 		int l = s.length();
-		while (l<length){
-			s="0"+s;
-			l++;
+		if (l>=length){
+			return s;
 		}
+		//Pad string with leading zeros
+		char[] c = new char[length];
+		Arrays.fill(c, 0, length-l, '0');
+		s.getChars(0, l, c, length-l);
 		//Return the resulting padded string
-		return s;
+		return new String(c);
 	}
 	
 	/**
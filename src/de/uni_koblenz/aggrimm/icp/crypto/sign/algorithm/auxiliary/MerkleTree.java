@@ -0,0 +1,177 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SigningContext;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.Triple;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
+
+/**
+ * Merkle tree over a sorted (canonical) list of triples
+ * 
+ * The list is split into runs of a fixed number of triples (leaves). Leaves are hashed in parallel.
+ * Each triple is encoded as the concatenation of subject, predicate and object (as in Carroll 2003).
+ * 
+ * Leaf hash:		digest(0x00 || triple_1 || ... || triple_n)
+ * Node hash:		digest(0x01 || left || right)
+ * 
+ * A node without sibling is moved up unchanged. The tree of an empty list consists of one empty leaf.
+ * All levels are kept, so single runs of triples can be verified later against the root.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class MerkleTree {
+	public static final int DEFAULT_LEAF_SIZE=1024;											//Default number of triples per leaf
+	
+	private static final byte LEAF_PREFIX=0x00;												//Domain separation for leaves
+	private static final byte NODE_PREFIX=0x01;												//Domain separation for inner nodes
+	
+	private final ArrayList<byte[][]> levels;												//Levels of the tree (index 0: leaves, last: root)
+	private final int leafSize;																//Number of triples per leaf
+	
+	//######################################################## Constructors
+	
+	private MerkleTree(ArrayList<byte[][]> levels, int leafSize){
+		this.levels=levels;
+		this.leafSize=leafSize;
+	}
+	
+	/**
+	 * Builds the Merkle tree of a sorted list of triples
+	 * Triples which are not relevant for the hash are skipped.
+	 * 
+	 * @param triples  sorted triples
+	 * @param digestAlgo  digest algorithm
+	 * @param leafSize  number of triples per leaf
+	 * @return  Merkle tree
+	 * @throws Exception  if hashing failed
+	 */
+	public static MerkleTree build(List<Triple> triples, final String digestAlgo, final int leafSize) throws Exception {
+		//Collect triples relevant for hash
+		final ArrayList<Triple> relevant=new ArrayList<Triple>(triples.size());
+		for (Triple t:triples){
+			if (Ontology.isRelevantForHash(t)){
+				relevant.add(t);
+			}
+		}
+		
+		//Hash leaves in parallel
+		int leafCount=Math.max(1, (relevant.size()+leafSize-1)/leafSize);
+		ArrayList<Callable<byte[]>> tasks=new ArrayList<Callable<byte[]>>(leafCount);
+		for (int i=0; i<leafCount; i++){
+			final int from=i*leafSize;
+			final int to=Math.min(from+leafSize, relevant.size());
+			tasks.add(new Callable<byte[]>(){
+				public byte[] call() throws Exception {
+					return hashLeaf(relevant, from, to, SigningContext.getDigest(digestAlgo));
+				}
+			});
+		}
+		List<byte[]> leaves=WorkerPool.invokeAll(tasks);
+		
+		//Hash inner nodes
+		ArrayList<byte[][]> levels=new ArrayList<byte[][]>();
+		byte[][] level=leaves.toArray(new byte[leaves.size()][]);
+		levels.add(level);
+		MessageDigest d=SigningContext.getDigest(digestAlgo);
+		while (level.length>1){
+			byte[][] parent=new byte[(level.length+1)/2][];
+			for (int i=0; i<parent.length; i++){
+				if (2*i+1<level.length){
+					parent[i]=hashNode(level[2*i], level[2*i+1], d);
+				}else{
+					//No sibling: move up
+					parent[i]=level[2*i];
+				}
+			}
+			levels.add(parent);
+			level=parent;
+		}
+		
+		return new MerkleTree(levels, leafSize);
+	}
+	
+	//######################################################## Hash Functions
+	
+	/**
+	 * Hashes a run of triples (leaf)
+	 * 
+	 * @param triples  triples
+	 * @param from  index of first triple (inclusive)
+	 * @param to  index of last triple (exclusive)
+	 * @param d  digest
+	 * @return  leaf hash
+	 */
+	public static byte[] hashLeaf(List<Triple> triples, int from, int to, MessageDigest d){
+		d.reset();
+		d.update(LEAF_PREFIX);
+		Utf8Encoder encoder=SigningContext.getUtf8Encoder();
+		for (int i=from; i<to; i++){
+			Triple t=triples.get(i);
+			encoder.begin(d);
+			encoder.append(t.getSubject());
+			encoder.append(t.getPredicate());
+			encoder.append(t.getObject());
+			encoder.end();
+		}
+		return d.digest();
+	}
+	
+	/**
+	 * Hashes an inner node
+	 * 
+	 * @param left  hash of left child
+	 * @param right  hash of right child
+	 * @param d  digest
+	 * @return  node hash
+	 */
+	public static byte[] hashNode(byte[] left, byte[] right, MessageDigest d){
+		d.reset();
+		d.update(NODE_PREFIX);
+		d.update(left);
+		d.update(right);
+		return d.digest();
+	}
+	
+	//######################################################## Getters
+	
+	/**
+	 * Gets the root hash
+	 * 
+	 * @return  root hash
+	 */
+	public byte[] getRoot(){
+		return levels.get(levels.size()-1)[0];
+	}
+	
+	/**
+	 * Gets all levels of the tree
+	 * 
+	 * @return  levels (index 0: leaves, last: root)
+	 */
+	public ArrayList<byte[][]> getLevels(){
+		return levels;
+	}
+	
+	/**
+	 * Gets the number of leaves
+	 * 
+	 * @return  number of leaves
+	 */
+	public int getLeafCount(){
+		return levels.get(0).length;
+	}
+	
+	/**
+	 * Gets the number of triples per leaf
+	 * 
+	 * @return  number of triples per leaf
+	 */
+	public int getLeafSize(){
+		return leafSize;
+	}
+	
+}
@@ -20,10 +20,10 @@ public class TripleHasher {
 	 * @throws Exception  if hashing fails
 	 */
 	public static BigInteger hashTripleMelnik(Triple t, MessageDigest d) throws Exception {	
-		//Get digests of subject, predicate and object
-		byte[] s = d.digest( t.getSubject().getBytes("UTF8") );
-		byte[] p = d.digest( t.getPredicate().getBytes("UTF8") );
-		byte[] o = d.digest( t.getObject().getBytes("UTF8") );
+		//Get digests of subject, predicate and object (digests of IRIs are cached)
+		byte[] s = hashTerm( t.getSubject(), d );
+		byte[] p = hashTerm( t.getPredicate(), d );
+		byte[] o = hashTerm( t.getObject(), d );
 		
 		//Prepare a new byte array which will contain all 3 digest
 		int l = s.length;							//get the length
@@ -44,6 +44,21 @@ public class TripleHasher {
 		
 		return new BigInteger(d.digest(b));
 	}
+	
+	/**
+	 * Hashs a single term, IRIs are looked up in the {@link DigestCache} of the digest method
+	 * 
+	 * @param term  term to hash
+	 * @param d  used digest method for hashing
+	 * @return  hash value as byte array (must not be modified)
+	 * @throws Exception  if hashing fails
+	 */
+	private static byte[] hashTerm(String term, MessageDigest d) throws Exception {
+		if (term.startsWith("<")){
+			return DigestCache.digest(term, d);
+		}
+		return d.digest( term.getBytes("UTF8") );
+	}
 
 	
 	/**
@@ -0,0 +1,152 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.security.MessageDigest;
+
+/**
+ * Encodes strings as UTF-8 directly into a reusable buffer which is fed into a message digest
+ * Avoids the temporary concatenated string and byte array per hashed triple.
+ * 
+ * All strings appended between {@link #begin(MessageDigest)} and {@link #end()} are encoded
+ * as if they were concatenated and encoded with String.getBytes(StandardCharsets.UTF_8)
+ * (surrogate pairs may be split between two strings, unpaired surrogates are replaced with '?').
+ * The digest is therefore identical.
+ * 
+ * Instances are not thread safe (see SigningContext.getUtf8Encoder).
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class Utf8Encoder {
+	private static final int BUFFER_SIZE=8192;									//Buffer size in bytes
+	private static final byte REPLACEMENT='?';									//Replacement for unpaired surrogates (as in String.getBytes)
+	
+	private final byte[] buffer;												//Encoded bytes which have not been fed into the digest yet
+	private int length;															//Number of bytes in buffer
+	private char highSurrogate;													//Pending high surrogate at the end of the last appended string (0 if none)
+	private MessageDigest digest;												//Digest which is fed
+	
+	//######################################################## Constructors
+	
+	public Utf8Encoder(){
+		buffer=new byte[BUFFER_SIZE];
+	}
+	
+	//######################################################## Encoding
+	
+	/**
+	 * Starts encoding a new byte sequence
+	 * 
+	 * @param d  digest which is fed with the encoded bytes
+	 */
+	public void begin(MessageDigest d){
+		digest=d;
+		length=0;
+		highSurrogate=0;
+	}
+	
+	/**
+	 * Encodes a string and appends it to the current byte sequence
+	 * 
+	 * @param s  string to encode
+	 */
+	public void append(String s){
+		int len=s.length();
+		int i=0;
+		
+		//Complete surrogate pair of last string
+		if (highSurrogate!=0 && len>0){
+			char c=s.charAt(0);
+			if (Character.isLowSurrogate(c)){
+				ensureCapacity();
+				putCodePoint(Character.toCodePoint(highSurrogate, c));
+				i=1;
+			}else{
+				ensureCapacity();
+				buffer[length++]=REPLACEMENT;
+			}
+			highSurrogate=0;
+		}
+		
+		for (; i<len; i++){
+			char c=s.charAt(i);
+			ensureCapacity();
+			if (c<0x80){
+				//1 byte (ASCII)
+				buffer[length++]=(byte)c;
+			}else if (c<0x800){
+				//2 bytes
+				buffer[length++]=(byte)(0xc0 | (c >> 6));
+				buffer[length++]=(byte)(0x80 | (c & 0x3f));
+			}else if (Character.isHighSurrogate(c)){
+				//4 bytes (surrogate pair)
+				if (i+1<len){
+					char low=s.charAt(i+1);
+					if (Character.isLowSurrogate(low)){
+						putCodePoint(Character.toCodePoint(c, low));
+						i++;
+					}else{
+						buffer[length++]=REPLACEMENT;
+					}
+				}else{
+					//Pair may be completed by the next string
+					highSurrogate=c;
+				}
+			}else if (Character.isLowSurrogate(c)){
+				//Unpaired low surrogate
+				buffer[length++]=REPLACEMENT;
+			}else{
+				//3 bytes
+				buffer[length++]=(byte)(0xe0 | (c >> 12));
+				buffer[length++]=(byte)(0x80 | ((c >> 6) & 0x3f));
+				buffer[length++]=(byte)(0x80 | (c & 0x3f));
+			}
+		}
+	}
+	
+	/**
+	 * Ends the current byte sequence and feeds all remaining bytes into the digest
+	 * (the digest itself is not completed)
+	 */
+	public void end(){
+		if (highSurrogate!=0){
+			ensureCapacity();
+			buffer[length++]=REPLACEMENT;
+			highSurrogate=0;
+		}
+		flush();
+		digest=null;
+	}
+	
+	//######################################################## Buffer
+	
+	/**
+	 * Puts a supplementary code point (4 bytes)
+	 * 
+	 * @param cp  code point
+	 */
+	private void putCodePoint(int cp){
+		buffer[length++]=(byte)(0xf0 | (cp >> 18));
+		buffer[length++]=(byte)(0x80 | ((cp >> 12) & 0x3f));
+		buffer[length++]=(byte)(0x80 | ((cp >> 6) & 0x3f));
+		buffer[length++]=(byte)(0x80 | (cp & 0x3f));
+	}
+	
+	/**
+	 * Makes sure that there is space for one encoded character (at most 4 bytes)
+	 */
+	private void ensureCapacity(){
+		if (length>BUFFER_SIZE-4){
+			flush();
+		}
+	}
+	
+	/**
+	 * Feeds buffered bytes into the digest
+	 */
+	private void flush(){
+		if (length>0){
+			digest.update(buffer, 0, length);
+			length=0;
+		}
+	}
+	
+}
@@ -0,0 +1,161 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool of worker threads for parallel hashing/signing steps
+ * The pool has one (daemon) thread per available processor and is created on first use.
+ * 
+ * Tasks which are submitted by a worker thread itself are executed directly in that thread,
+ * so nested parallel steps cannot block the pool.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class WorkerPool {
+	private static ExecutorService executor;												//Executor (created on first use)
+	private static final ThreadLocal<Boolean> worker=new ThreadLocal<Boolean>();			//Set for worker threads
+	
+	//######################################################## Executor
+	
+	/**
+	 * Gets the shared executor
+	 * 
+	 * @return  executor service
+	 */
+	public static synchronized ExecutorService getExecutor(){
+		if (executor==null){
+			final AtomicInteger threadCount=new AtomicInteger();
+			executor=Executors.newFixedThreadPool(getThreadCount(), new ThreadFactory(){
+				public Thread newThread(final Runnable r){
+					Thread t=new Thread(new Runnable(){
+						public void run(){
+							worker.set(Boolean.TRUE);
+							r.run();
+						}
+					}, "signing-worker-"+threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Gets the number of worker threads
+	 * 
+	 * @return  number of worker threads
+	 */
+	public static int getThreadCount(){
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Is the current thread a worker thread of the pool?
+	 * 
+	 * @return  true if called by a worker thread, false otherwise
+	 */
+	public static boolean isWorkerThread(){
+		return worker.get()!=null;
+	}
+	
+	//######################################################## Execution
+	
+	/**
+	 * Executes tasks in parallel and waits for all of them
+	 * Tasks are executed directly if there is only one task or if called by a worker thread.
+	 * 
+	 * @param tasks  tasks to execute
+	 * @return  results in the order of the tasks
+	 * @throws Exception  first exception thrown by a task (in task order)
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws Exception {
+		List<T> results=new ArrayList<T>(tasks.size());
+		
+		//Execute directly
+		if (tasks.size()<=1 || isWorkerThread() || getThreadCount()<=1){
+			for (Callable<T> task:tasks){
+				results.add(task.call());
+			}
+			return results;
+		}
+		
+		//Execute in pool
+		List<Future<T>> futures=getExecutor().invokeAll(tasks);
+		for (Future<T> f:futures){
+			try {
+				results.add(f.get());
+			} catch (ExecutionException e){
+				Throwable cause=e.getCause();
+				if (cause instanceof Exception){
+					throw (Exception)cause;
+				}
+				throw e;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Executes tasks in parallel until a task returns a result (which is not null)
+	 * Outstanding tasks are cancelled (interrupted) as soon as a result has been returned or a task has failed,
+	 * so long running tasks should stop if their thread has been interrupted.
+	 * Tasks are executed directly in task order if there is only one task or if called by a worker thread.
+	 * 
+	 * @param tasks  tasks to execute
+	 * @return  first result which is not null (in completion order) or null if all tasks returned null
+	 * @throws Exception  first exception thrown by a task (in completion order)
+	 */
+	public static <T> T invokeUntilResult(List<? extends Callable<T>> tasks) throws Exception {
+		//Execute directly
+		if (tasks.size()<=1 || isWorkerThread() || getThreadCount()<=1){
+			for (Callable<T> task:tasks){
+				T result=task.call();
+				if (result!=null){
+					return result;
+				}
+			}
+			return null;
+		}
+		
+		//Execute in pool and wait for the tasks in completion order
+		CompletionService<T> service=new ExecutorCompletionService<T>(getExecutor());
+		List<Future<T>> futures=new ArrayList<Future<T>>(tasks.size());
+		try {
+			for (Callable<T> task:tasks){
+				futures.add(service.submit(task));
+			}
+			for (int i=0; i<tasks.size(); i++){
+				try {
+					T result=service.take().get();
+					if (result!=null){
+						return result;
+					}
+				} catch (ExecutionException e){
+					Throwable cause=e.getCause();
+					if (cause instanceof Exception){
+						throw (Exception)cause;
+					}
+					throw e;
+				}
+			}
+			return null;
+		} finally {
+			//Cancel outstanding tasks
+			for (Future<T> f:futures){
+				f.cancel(true);
+			}
+		}
+	}
+	
+}
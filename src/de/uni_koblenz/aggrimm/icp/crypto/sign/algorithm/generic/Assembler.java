@@ -3,6 +3,7 @@ package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic;
 import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.*;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.ontology.Ontology;
@@ -40,7 +41,41 @@ public class Assembler {
 		SignatureData sigData=gc.getSignature();
 		
 		//Prepare Ontology
-		Ontology o=new Ontology(sigData);
+		ArrayList<Ontology> ontologies=new ArrayList<Ontology>(1);
+		ontologies.add(new Ontology(sigData));
+		assemble(gc, signatureGraphName, ontologies, addSignature);
+	}
+	
+	/**
+	 * Assembles a {@link GraphCollection} with several signatures of the same hash (see {@link Signer#sign(GraphCollection, List, List)})
+	 * Adds one signature graph with the signature statements of all signatures (multi-signature graph).
+	 * The statements of each signature are numbered (_:gsm-1, _:sig-1, _:gsm-2, _:sig-2, ...).
+	 * 
+	 * @param gc					{@link GraphCollection} to assemble
+	 * @param signatureGraphName	name of signature graph
+	 * @param signatures			signature data of all signatures
+	 * @throws Exception
+	 */
+	public static void assemble(GraphCollection gc, String signatureGraphName, List<SignatureData> signatures) throws Exception {
+		//Prepare Ontologies
+		ArrayList<Ontology> ontologies=new ArrayList<Ontology>(signatures.size());
+		for (int i=0; i<signatures.size(); i++){
+			ontologies.add(new Ontology(signatures.get(i), i+1));
+		}
+		assemble(gc, signatureGraphName, ontologies, true);
+	}
+	
+	/**
+	 * Assembles a {@link GraphCollection} with the signature statements of ontologies
+	 * 
+	 * @param gc					{@link GraphCollection} to assemble
+	 * @param signatureGraphName	name of signature graph
+	 * @param ontologies			ontologies with signature statements
+	 * @param addSignature			add signature statement to graph?
+	 * @throws Exception
+	 */
+	private static void assemble(GraphCollection gc, String signatureGraphName, List<Ontology> ontologies, Boolean addSignature) throws Exception {
+		Ontology o=ontologies.get(0);
 		
 		//Choose an unused prefix for signatures to avoid prefix collisions
 		//Add number to default prefix in case it is used in graph already with other IRI
@@ -67,7 +102,9 @@ public class Assembler {
 				break;
 			}
 		}
-		o.setSigPrefix(sigPre);
+		for (Ontology ontology:ontologies){
+			ontology.setSigPrefix(sigPre);
+		}
 		
 		//Wrap a signature graph around everything
 		LinkedList<NamedGraph> temp = gc.getGraphs();							//Cache old root level graph list
@@ -104,16 +141,18 @@ public class Assembler {
 		//Update depths of modified graph collection
 		gc.updateDepths();														
 		
-		//Add signature triples from onotology
+		//Add signature triples from onotologies
 		ArrayList<Triple> sigGraphTriples=sigGraph.getTriples();
-		LinkedList<Triple> signatureTriples;
-		if (addSignature){
-			signatureTriples=o.getTriples();
-		}else{
-			signatureTriples=o.getTriplesWithoutSignature();
-		}
-		for (Triple t:signatureTriples){
-			sigGraphTriples.add( new Triple(t.getSubject(),t.getPredicate(),t.getObject()) );
+		for (Ontology ontology:ontologies){
+			LinkedList<Triple> signatureTriples;
+			if (addSignature){
+				signatureTriples=ontology.getTriples();
+			}else{
+				signatureTriples=ontology.getTriplesWithoutSignature();
+			}
+			for (Triple t:signatureTriples){
+				sigGraphTriples.add( new Triple(t.getSubject(),t.getPredicate(),t.getObject()) );
+			}
 		}
 		
 		//Add old root triples
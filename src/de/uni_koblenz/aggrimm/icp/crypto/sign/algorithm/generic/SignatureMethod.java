@@ -0,0 +1,193 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData;
+
+/**
+ * Signature methods used to sign graph hashes and MSG hashes
+ * The method is saved in signed files as hasSignatureMethod (e.g. sm-ed25519).
+ *
+ * Method			  Description
+ * rsa				- hash is encrypted with the private key (cipher of the key algorithm, default for RSA keys)
+ * sha256withrsa	- java.security.Signature SHA256withRSA (PKCS #1 v1.5)
+ * sha256withecdsa	- java.security.Signature SHA256withECDSA (default for EC keys, e.g. P-256)
+ * ed25519			- java.security.Signature Ed25519 (default for Ed25519 keys)
+ *
+ * Unknown methods are handled like rsa (cipher of the key algorithm), so files signed with older versions can still be verified.
+ * Signature and cipher instances are reused per thread (see {@link SigningContext}).
+ * Callers release them with {@link SigningContext#clear()} after signing.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class SignatureMethod {
+	public static final String RSA="rsa";
+	public static final String SHA256_WITH_RSA="sha256withrsa";
+	public static final String SHA256_WITH_ECDSA="sha256withecdsa";
+	public static final String ED25519="ed25519";
+
+	//######################################################## Methods
+
+	/**
+	 * Gets the java.security.Signature algorithm of a signature method
+	 *
+	 * @param method  signature method (e.g. {@link #ED25519})
+	 * @return  algorithm name or null if the method uses a cipher
+	 */
+	public static String getAlgorithmName(String method){
+		if (method==null){
+			return null;
+		}else if (method.equals(SHA256_WITH_RSA)){
+			return "SHA256withRSA";
+		}else if (method.equals(SHA256_WITH_ECDSA)){
+			return "SHA256withECDSA";
+		}else if (method.equals(ED25519)){
+			return "Ed25519";
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the default signature method for a key
+	 *
+	 * @param key  private or public key
+	 * @return  signature method (the lower case key algorithm for keys which are used with a cipher)
+	 */
+	public static String getDefaultMethod(Key key){
+		String algorithm=key.getAlgorithm();
+		if (algorithm.equals("EC")){
+			return SHA256_WITH_ECDSA;
+		}else if (algorithm.equals("Ed25519") || algorithm.equals("EdDSA")){
+			return ED25519;
+		}
+		return algorithm.toLowerCase();
+	}
+
+	/**
+	 * Gets the signature method for signing or verification
+	 * A method can be requested by setting it in the signature data before signing.
+	 *
+	 * @param sigData  signature data
+	 * @param key  private key for signing or public key for verification
+	 * @return  signature method of the signature data or default method of the key
+	 */
+	public static String getMethod(SignatureData sigData, Key key){
+		if (sigData!=null && sigData.getSignatureMethod()!=null){
+			return sigData.getSignatureMethod();
+		}
+		return getDefaultMethod(key);
+	}
+
+	/**
+	 * Can a key be used with a signature method?
+	 * Used to skip keys of other key types when several keys are tried.
+	 *
+	 * @param method  signature method
+	 * @param key  private or public key
+	 * @return  true if the key type fits the signature method (always true for unknown methods)
+	 */
+	public static boolean fitsKey(String method, Key key){
+		String keyMethod=getDefaultMethod(key);
+		if (getAlgorithmName(method)==null){
+			//Cipher of the key algorithm (there are no ciphers for EC and Ed25519 keys)
+			return !keyMethod.equals(SHA256_WITH_ECDSA) && !keyMethod.equals(ED25519);
+		}else if (method.equals(SHA256_WITH_RSA)){
+			return key.getAlgorithm().equals("RSA");
+		}
+		return keyMethod.equals(method);
+	}
+
+	//######################################################## Sign & Verify
+
+	/**
+	 * Signs data
+	 *
+	 * @param method  signature method
+	 * @param privateKey  private key
+	 * @param data  data to sign (hash)
+	 * @return  signature value
+	 * @throws Exception  if the key does not fit the signature method
+	 */
+	public static byte[] sign(String method, Key privateKey, byte[] data) throws Exception {
+		String algorithm=getAlgorithmName(method);
+
+		//Encrypt (reuse cipher of the current thread)
+		if (algorithm==null){
+			Cipher cipher=SigningContext.getCipher(Cipher.ENCRYPT_MODE, privateKey);
+			try {
+				return cipher.doFinal(data);
+			} catch (Exception e){
+				SigningContext.discardCipher(Cipher.ENCRYPT_MODE);
+				throw e;
+			}
+		}
+
+		//Sign (reuse signature of the current thread)
+		if (!(privateKey instanceof PrivateKey)){
+			throw new Exception("Signature method '"+method+"' requires a private key");
+		}
+		Signature signature=SigningContext.getSignature(algorithm);
+		signature.initSign((PrivateKey)privateKey);
+		signature.update(data);
+		return signature.sign();
+	}
+
+	/**
+	 * Verifies a signature value
+	 *
+	 * @param method  signature method
+	 * @param publicKey  public key
+	 * @param data  signed data (hash)
+	 * @param signatureValue  signature value
+	 * @return  true if the signature value is valid for the data, false otherwise (also if the key type does not fit the method)
+	 * @throws Exception  if the key is no public key
+	 */
+	public static boolean verify(String method, Key publicKey, byte[] data, byte[] signatureValue) throws Exception {
+		String algorithm=getAlgorithmName(method);
+
+		//The method is read from the signed graph, keys of another type cannot verify it
+		if (!fitsKey(method, publicKey)){
+			return false;
+		}
+
+		//Decrypt and compare (reuse cipher of the current thread)
+		if (algorithm==null){
+			Cipher cipher=SigningContext.getCipher(Cipher.DECRYPT_MODE, publicKey);
+			byte[] decrypted=null;
+			try {
+				decrypted=cipher.doFinal(signatureValue);
+			} catch (Exception e){
+				SigningContext.discardCipher(Cipher.DECRYPT_MODE);
+				return false;
+			}
+			return Arrays.equals(decrypted, data);
+		}
+
+		//Verify (reuse signature of the current thread)
+		if (!(publicKey instanceof PublicKey)){
+			throw new Exception("Signature method '"+method+"' requires a public key");
+		}
+		Signature signature=SigningContext.getSignature(algorithm);
+		try {
+			signature.initVerify((PublicKey)publicKey);
+		} catch (InvalidKeyException e){
+			//Key is not accepted by the algorithm (e.g. curve or key size)
+			return false;
+		}
+		signature.update(data);
+		try {
+			return signature.verify(signatureValue);
+		} catch (Exception e){
+			//Malformed signature value
+			return false;
+		}
+	}
+
+}
@@ -1,11 +1,13 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic;
 
 import java.security.Key;
-
-import javax.crypto.Cipher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.codec.binary.Base64;
 
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData;
 
@@ -18,6 +20,8 @@ public class Signer {
 	
 	/**
 	 * Signs a {@link GraphCollection}
+	 * The signature method can be requested by setting it in the signature data before signing,
+	 * otherwise the default method of the key is used (see {@link SignatureMethod}).
 	 * 
 	 * @param gc						{@link GraphCollection} to sign
 	 * @param privateKey				private key for signature calculation
@@ -30,23 +34,73 @@ public class Signer {
 			throw new Exception("GraphCollection has no signature data. Call 'canonicalize' and 'hash' methods first.");
 		}
 		
-		//Get Signature Data
-		SignatureData sigData=gc.getSignature();
-		
-		//Sign
-		Cipher cipher = Cipher.getInstance(privateKey.getAlgorithm());
-		cipher.init(Cipher.ENCRYPT_MODE, privateKey);
-		
-		String signature = new String(
-			Base64.encodeBase64(
-				cipher.doFinal( sigData.getHash().toByteArray() )
-			)
-		);
+		sign(gc.getSignature(), privateKey, verficiationCertificate);
+	}
+	
+	/**
+	 * Signs the hash of signature data
+	 * 
+	 * @param sigData					signature data with hash
+	 * @param privateKey				private key for signature calculation
+	 * @param verficiationCertificate	certificate information
+	 * @throws Exception
+	 */
+	public static void sign(SignatureData sigData, Key privateKey, String verficiationCertificate) throws Exception {
+		//Sign (the cipher or signature of the thread keeps the private key, release it afterwards)
+		String method = SignatureMethod.getMethod(sigData, privateKey);
+		String signature;
+		try {
+			signature = new String(
+				Base64.encodeBase64(
+					SignatureMethod.sign( method, privateKey, sigData.getHash().toByteArray() )
+				)
+			);
+		} finally {
+			SigningContext.clear();
+		}
 		
 		//Update Signature Data
 		sigData.setSignature("\""+signature+"\"");
-		sigData.setSignatureMethod(privateKey.getAlgorithm().toLowerCase());
+		sigData.setSignatureMethod(method);
 		sigData.setVerificationCertificate(verficiationCertificate);
 	}
+	
+	/**
+	 * Signs a {@link GraphCollection} with several keys (the hash is signed in parallel, see {@link WorkerPool})
+	 * Each key gets a copy of the signature data of the graph collection.
+	 * 
+	 * @param gc						{@link GraphCollection} to sign
+	 * @param privateKeys				private keys for signature calculation
+	 * @param verficiationCertificates	certificate information (one per key)
+	 * @return							signature data of each key
+	 * @throws Exception
+	 */
+	public static ArrayList<SignatureData> sign(GraphCollection gc, List<? extends Key> privateKeys, List<String> verficiationCertificates) throws Exception {
+		//Signature Data existing?
+		if (!gc.hasSignature()){
+			throw new Exception("GraphCollection has no signature data. Call 'canonicalize' and 'hash' methods first.");
+		}
+		if (privateKeys.size()!=verficiationCertificates.size()){
+			throw new Exception("Number of keys and certificates differ");
+		}
+		
+		//Sign copies of the signature data
+		final ArrayList<SignatureData> signatures=new ArrayList<SignatureData>(privateKeys.size());
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>(privateKeys.size());
+		for (int i=0; i<privateKeys.size(); i++){
+			final SignatureData sigData=gc.getSignature().copy();
+			final Key privateKey=privateKeys.get(i);
+			final String verficiationCertificate=verficiationCertificates.get(i);
+			signatures.add(sigData);
+			tasks.add(new Callable<Void>(){
+				public Void call() throws Exception {
+					sign(sigData, privateKey, verficiationCertificate);
+					return null;
+				}
+			});
+		}
+		WorkerPool.invokeAll(tasks);
+		return signatures;
+	}
 
 }
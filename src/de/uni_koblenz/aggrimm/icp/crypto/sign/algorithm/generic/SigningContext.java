@@ -0,0 +1,222 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic;
+
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Cipher;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.FrameworkProvider;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.Utf8Encoder;
+
+/**
+ * Reusable signing context which keeps message digests, ciphers and signatures for the current thread.
+ * Avoids provider lookups and cipher initialization for every single hash/signature (e.g. per MSG).
+ *
+ * Digests are cloned from a shared prototype per digest algorithm.
+ * Ciphers stay initialized for the key they have been used with last.
+ * Signers call {@link #clear()} after signing, so threads do not keep ciphers and signatures initialized with private keys.
+ * The UTF-8 encoder reuses its buffer for all strings which are hashed.
+ * Each thread has its own context, so digests and ciphers are never shared between threads.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+public class SigningContext {
+	private static final ConcurrentHashMap<String,MessageDigest> prototypes=new ConcurrentHashMap<String,MessageDigest>();	//Digest prototypes (by lower case algorithm name)
+	private static final ThreadLocal<SigningContext> contexts=new ThreadLocal<SigningContext>(){
+		protected SigningContext initialValue(){
+			return new SigningContext();
+		}
+	};
+
+	private HashMap<String,MessageDigest> digests;			//Digests of this thread (by algorithm name)
+	private Cipher[] ciphers;								//Ciphers of this thread (by cipher mode)
+	private Key[] cipherKeys;								//Keys the ciphers are initialized with (by cipher mode)
+	private HashMap<String,Signature> signatures;			//Signatures of this thread (by algorithm name, see SignatureMethod)
+	private Utf8Encoder encoder;							//UTF-8 encoder of this thread
+
+	//######################################################## Constructors
+
+	private SigningContext(){
+		digests=new HashMap<String,MessageDigest>();
+		ciphers=new Cipher[Cipher.UNWRAP_MODE+1];
+		cipherKeys=new Key[Cipher.UNWRAP_MODE+1];
+		signatures=new HashMap<String,Signature>();
+		encoder=new Utf8Encoder();
+	}
+
+	/**
+	 * Gets the signing context of the current thread
+	 *
+	 * @return  signing context
+	 */
+	public static SigningContext get(){
+		return contexts.get();
+	}
+
+	//######################################################## Digests
+
+	/**
+	 * Gets a reset digest of the current thread
+	 *
+	 * @param algorithm  digest algorithm name
+	 * @return  message digest
+	 * @throws NoSuchAlgorithmException  if the digest algorithm is unknown
+	 */
+	public static MessageDigest getDigest(String algorithm) throws NoSuchAlgorithmException {
+		return get().digest(algorithm);
+	}
+
+	/**
+	 * Gets a reset digest of this context
+	 *
+	 * @param algorithm  digest algorithm name
+	 * @return  message digest
+	 * @throws NoSuchAlgorithmException  if the digest algorithm is unknown
+	 */
+	public MessageDigest digest(String algorithm) throws NoSuchAlgorithmException {
+		MessageDigest d=digests.get(algorithm);
+		if (d==null){
+			d=createDigest(algorithm);
+			digests.put(algorithm, d);
+		}else{
+			d.reset();
+		}
+		return d;
+	}
+
+	/**
+	 * Creates a new digest which is not reused by the current thread
+	 * Used for digests which are kept after hashing (e.g. in {@link de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData}),
+	 * digests of the context are reset and changed by later hashing steps of the thread.
+	 *
+	 * @param algorithm  digest algorithm name
+	 * @return  new message digest
+	 * @throws NoSuchAlgorithmException  if the digest algorithm is unknown
+	 */
+	public static MessageDigest newDigest(String algorithm) throws NoSuchAlgorithmException {
+		return createDigest(algorithm);
+	}
+
+	/**
+	 * Creates a new digest by cloning the prototype of the digest algorithm
+	 *
+	 * @param algorithm  digest algorithm name
+	 * @return  new message digest
+	 * @throws NoSuchAlgorithmException  if the digest algorithm is unknown
+	 */
+	private static MessageDigest createDigest(String algorithm) throws NoSuchAlgorithmException {
+		String name=algorithm.toLowerCase();
+		MessageDigest prototype=prototypes.get(name);
+		if (prototype==null){
+			FrameworkProvider.install();
+			prototype=MessageDigest.getInstance(algorithm);
+			prototypes.putIfAbsent(name, prototype);
+		}
+		try {
+			synchronized (prototype){
+				return (MessageDigest)prototype.clone();
+			}
+		} catch (CloneNotSupportedException e){
+			return MessageDigest.getInstance(algorithm);
+		}
+	}
+
+	//######################################################## Encoder
+	
+	/**
+	 * Gets the UTF-8 encoder of the current thread
+	 *
+	 * @return  UTF-8 encoder
+	 */
+	public static Utf8Encoder getUtf8Encoder(){
+		return get().encoder;
+	}
+
+	//######################################################## Ciphers
+
+	/**
+	 * Gets a cipher of the current thread which is initialized with a key
+	 *
+	 * @param mode  cipher mode (e.g. {@link Cipher#ENCRYPT_MODE})
+	 * @param key  key the cipher is initialized with
+	 * @return  initialized cipher
+	 * @throws Exception  if the cipher cannot be created or initialized
+	 */
+	public static Cipher getCipher(int mode, Key key) throws Exception {
+		return get().cipher(mode, key);
+	}
+
+	/**
+	 * Gets a cipher of this context which is initialized with a key
+	 * The cipher is only initialized again if the key has changed since the last call.
+	 *
+	 * @param mode  cipher mode (e.g. {@link Cipher#ENCRYPT_MODE})
+	 * @param key  key the cipher is initialized with
+	 * @return  initialized cipher
+	 * @throws Exception  if the cipher cannot be created or initialized
+	 */
+	public Cipher cipher(int mode, Key key) throws Exception {
+		Cipher cipher=ciphers[mode];
+		if (cipher!=null && cipherKeys[mode]==key){
+			return cipher;
+		}
+		//Create a new cipher if there is none for the key algorithm
+		if (cipher==null || cipherKeys[mode]==null || !cipherKeys[mode].getAlgorithm().equals(key.getAlgorithm())){
+			cipher=Cipher.getInstance(key.getAlgorithm());
+		}
+		cipherKeys[mode]=null;
+		cipher.init(mode, key);
+		ciphers[mode]=cipher;
+		cipherKeys[mode]=key;
+		return cipher;
+	}
+
+	/**
+	 * Discards the cipher of the current thread for a mode
+	 * Must be called if an operation of the cipher failed (its state is undefined afterwards).
+	 *
+	 * @param mode  cipher mode (e.g. {@link Cipher#DECRYPT_MODE})
+	 */
+	public static void discardCipher(int mode){
+		SigningContext context=get();
+		context.ciphers[mode]=null;
+		context.cipherKeys[mode]=null;
+	}
+
+	/**
+	 * Releases the ciphers and signatures of the current thread
+	 * They keep the key they have been initialized with (e.g. a private key after signing).
+	 * Digests and the UTF-8 encoder are kept, they do not depend on keys.
+	 */
+	public static void clear(){
+		SigningContext context=get();
+		Arrays.fill(context.ciphers, null);
+		Arrays.fill(context.cipherKeys, null);
+		context.signatures.clear();
+	}
+
+	//######################################################## Signatures
+
+	/**
+	 * Gets a signature of the current thread (must be initialized for signing or verification by the caller)
+	 *
+	 * @param algorithm  signature algorithm name (e.g. Ed25519)
+	 * @return  signature
+	 * @throws NoSuchAlgorithmException  if the signature algorithm is unknown
+	 */
+	public static Signature getSignature(String algorithm) throws NoSuchAlgorithmException {
+		HashMap<String,Signature> signatures=get().signatures;
+		Signature signature=signatures.get(algorithm);
+		if (signature==null){
+			signature=Signature.getInstance(algorithm);
+			signatures.put(algorithm, signature);
+		}
+		return signature;
+	}
+
+}
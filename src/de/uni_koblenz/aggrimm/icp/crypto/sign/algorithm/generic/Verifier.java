@@ -1,9 +1,6 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic;
 
 import java.security.Key;
-import java.util.Arrays;
-
-import javax.crypto.Cipher;
 
 import org.apache.commons.codec.binary.Base64;
 
@@ -19,6 +16,7 @@ public class Verifier {
 	
 	/**
 	 * Verifies a {@link GraphCollection} using a public key
+	 * The signature method of the signature data is used (see {@link SignatureMethod}).
 	 * 
 	 * @param gc			{@link GraphCollection} to sign
 	 * @param publicKey 	a public key for signature verification
@@ -26,11 +24,18 @@ public class Verifier {
 	 * @throws Exception
 	 */
 	public static boolean verify(GraphCollection gc, Key publicKey) throws Exception{
-		SignatureData sigData = gc.getSignature();
-		
-    	//Decrypt signature using the provided public key
-		Cipher cipher = Cipher.getInstance( publicKey.getAlgorithm() );
-		cipher.init(Cipher.DECRYPT_MODE, publicKey);
+		return verify(gc.getSignature(), publicKey);
+	}
+	
+	/**
+	 * Verifies the signature value of signature data using a public key
+	 * 
+	 * @param sigData		signature data with hash and signature value
+	 * @param publicKey 	a public key for signature verification
+	 * @return				true if verification succeeded, false otherwise
+	 * @throws Exception
+	 */
+	public static boolean verify(SignatureData sigData, Key publicKey) throws Exception{
 		String sigString = sigData.getSignature();
 		if (sigString==null){
 			throw new Exception("Signature value not found");
@@ -39,19 +44,9 @@ public class Verifier {
 			throw new Exception("Signature value is empty");
 		}
 		
-		//Decrypt
-		byte [] sigDecrypted = null;
-		try {
-			sigDecrypted=cipher.doFinal(
-				Base64.decodeBase64(sigString)
-			);
-		} catch (Exception e){
-			return false;
-		}
-		
-		//Are sigDecrypted and hash equal?
-		byte[] hash=sigData.getHash().toByteArray();
-		return (Arrays.equals(sigDecrypted,hash));
+		//Verify signature using the provided public key
+		String method = SignatureMethod.getMethod(sigData, publicKey);
+		return SignatureMethod.verify( method, publicKey, sigData.getHash().toByteArray(), Base64.decodeBase64(sigString) );
 	}
 	
 }
@@ -168,6 +168,28 @@ public class GraphCollection {
 		return stats;
 	}
 	
+	/**
+	 * Gets MSG statistics of the {@link GraphCollection} (see {@link NamedGraph#getMSGStats(boolean)})
+	 * Array index - value
+	 * 0 - MSG count
+	 * 1 - triple count of the largest MSG
+	 * 2+k - MSGs with 2^k to 2^(k+1)-1 triples
+	 * 
+	 * @return array with statistics
+	 */
+	public int[] getMSGStats(){
+		int[] stats=new int[2+NamedGraph.MSG_SIZE_CLASSES];
+		for (NamedGraph subG:graphs){
+			int[] r=subG.getMSGStats(true);
+			stats[0]+=r[0];
+			stats[1]=Math.max(stats[1], r[1]);
+			for (int i=2; i<stats.length; i++){
+				stats[i]+=r[i];
+			}
+		}
+		return stats;
+	}
+	
 	/**
 	 * Counts triples with specified predicate in the {@link GraphCollection}
 	 * 
@@ -284,6 +306,26 @@ public class GraphCollection {
 		return true;
 	}
 	
+	/**
+	 * Copies the graph collection with its prefixes, graphs and signature data
+	 * The copy can be changed (e.g. canonicalized for a verification) without changing this graph collection.
+	 * 
+	 * @return  copy of the graph collection
+	 */
+	public GraphCollection copy(){
+		GraphCollection c=new GraphCollection();
+		for (Prefix p:prefixes){
+			c.prefixes.add(new Prefix(p.getPrefix(), p.getIri()));
+		}
+		for (NamedGraph g:graphs){
+			c.graphs.add(g.copy(null));
+		}
+		if (signature!=null){
+			c.signature=signature.copy();
+		}
+		return c;
+	}
+	
 	/**
 	 * Clears the graph collection by removing all contained graphs
 	 */
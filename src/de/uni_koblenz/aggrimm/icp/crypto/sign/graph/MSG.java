@@ -10,7 +10,7 @@ import java.util.ArrayList;
  * A MSG can consist of just one triple in case it has no blank nodes or in case it has blank nodes which are not part of any other triple.
  * A set of triples can be split into a set of MSGs using the method NamedGraph.SplitIntoMSGs().
  * MSGs can have a hash, signature and certificate.
- * MSGs are currently only used by the algorithm of Tummarello. All other algorithms do not split sets of triples into MSGs.
+ * MSGs are used by the algorithm of Tummarello and to find blank node components (carroll-2003-components). All other algorithms do not split sets of triples into MSGs.
  * 
  * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
  */
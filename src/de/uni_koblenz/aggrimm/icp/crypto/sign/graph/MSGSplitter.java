@@ -0,0 +1,329 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.WorkerPool;
+
+/**
+ * Splits triples into MSGs (used by {@link NamedGraph#splitIntoMSGs(ArrayList)})
+ *
+ * Blank node identifiers are mapped to integer keys first. Each triple with blank nodes is added to a bucket,
+ * buckets are merged with a union-find (union by size, path halving) in O(α(n)).
+ * The triples of a bucket are a linked list, so the triples of merged buckets are concatenated in constant time.
+ * A single grouping pass creates the MSGs afterwards.
+ *
+ * MSGs and the order of their triples are the same as with the former bucket algorithm:
+ * A bucket is positioned at the triple which created it. If a triple merges two buckets, the bucket of the subject
+ * keeps its position and gets the triples of the bucket of the object followed by the triple itself.
+ *
+ * In parallel mode, blank node identifiers are mapped to keys by the threads of the {@link WorkerPool}.
+ * Merging stays sequential because the order of the merges defines the order of MSGs and triples.
+ *
+ * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
+ */
+class MSGSplitter {
+	public static final int TRIPLES_PER_TASK=4096;							//Minimum number of triples whose blank nodes are mapped by one task (parallel mode)
+
+	private ArrayList<Triple> triples;										//Triples to split
+	private int[] subjectKeys;												//Key of the blank node subject of each triple (-1 if it is no blank node)
+	private int[] objectKeys;												//Key of the blank node object of each triple (-1 if it is no blank node)
+	private int keyCount;													//Number of keys
+	private int[] parent;													//Union-find parent of each bucket (by index of the triple which created it, -1 if no bucket)
+	private int[] size;														//Number of triples in each bucket (roots only)
+	private int[] first;													//First triple of the list of each bucket (roots only)
+	private int[] last;														//Last triple of the list of each bucket (roots only)
+	private int[] next;														//Next triple in the list of a bucket (-1 for the last triple)
+	private int[] anchor;													//Triple which created the bucket that defines the MSG position (roots only)
+
+	//######################################################## Constructors
+
+	private MSGSplitter(ArrayList<Triple> triples){
+		this.triples=triples;
+		int n=triples.size();
+		subjectKeys=new int[n];
+		objectKeys=new int[n];
+	}
+
+	//######################################################## Split
+
+	/**
+	 * Splits triples into MSGs (the triple list is not changed)
+	 * Triples without blank nodes become MSGs with one triple.
+	 *
+	 * @param triples  triples to split
+	 * @return  MSGs
+	 */
+	static ArrayList<MSG> split(ArrayList<Triple> triples){
+		MSGSplitter splitter=new MSGSplitter(triples);
+		splitter.mapKeys();
+		splitter.mergeBuckets();
+		return splitter.group();
+	}
+
+	/**
+	 * Splits triples into MSGs in parallel mode (same result as {@link #split(ArrayList)})
+	 *
+	 * @param triples  triples to split
+	 * @return  MSGs
+	 * @throws Exception  if a task fails
+	 */
+	static ArrayList<MSG> splitParallel(ArrayList<Triple> triples) throws Exception {
+		MSGSplitter splitter=new MSGSplitter(triples);
+		if (triples.size()>TRIPLES_PER_TASK){
+			splitter.mapKeysParallel();
+		}else{
+			splitter.mapKeys();
+		}
+		splitter.mergeBuckets();
+		return splitter.group();
+	}
+
+	/**
+	 * Maps blank node identifiers to keys
+	 */
+	private void mapKeys(){
+		HashMap<String,Integer> keys=new HashMap<String,Integer>();
+		for (int i=0; i<triples.size(); i++){
+			Triple t=triples.get(i);
+			subjectKeys[i]=getKey(keys, t.getSubject());
+			objectKeys[i]=getKey(keys, t.getObject());
+		}
+		keyCount=keys.size();
+	}
+
+	private static int getKey(HashMap<String,Integer> keys, String node){
+		if (!node.startsWith("_")){
+			return -1;
+		}
+		Integer key=keys.get(node);
+		if (key==null){
+			key=keys.size();
+			keys.put(node, key);
+		}
+		return key;
+	}
+
+	/**
+	 * Maps blank node identifiers to keys in parallel
+	 * Each task maps a range of triples. Keys may have gaps (unused keys do not matter).
+	 *
+	 * @throws Exception  if a task fails
+	 */
+	private void mapKeysParallel() throws Exception {
+		final ConcurrentHashMap<String,Integer> keys=new ConcurrentHashMap<String,Integer>();
+		final AtomicInteger counter=new AtomicInteger();
+		ArrayList<Callable<Void>> tasks=new ArrayList<Callable<Void>>();
+		for (int from=0; from<triples.size(); from+=TRIPLES_PER_TASK){
+			final int start=from;
+			final int end=Math.min(from+TRIPLES_PER_TASK, triples.size());
+			tasks.add(new Callable<Void>(){
+				public Void call() throws Exception {
+					for (int i=start; i<end; i++){
+						Triple t=triples.get(i);
+						subjectKeys[i]=getKey(keys, counter, t.getSubject());
+						objectKeys[i]=getKey(keys, counter, t.getObject());
+					}
+					return null;
+				}
+			});
+		}
+		WorkerPool.invokeAll(tasks);
+		keyCount=counter.get();
+	}
+
+	private static int getKey(ConcurrentHashMap<String,Integer> keys, AtomicInteger counter, String node){
+		if (!node.startsWith("_")){
+			return -1;
+		}
+		Integer key=keys.get(node);
+		if (key==null){
+			Integer newKey=counter.getAndIncrement();
+			key=keys.putIfAbsent(node, newKey);
+			if (key==null){
+				key=newKey;
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Adds all triples with blank nodes to buckets and merges buckets (in triple order)
+	 */
+	private void mergeBuckets(){
+		int n=triples.size();
+		parent=new int[n];
+		size=new int[n];
+		first=new int[n];
+		last=new int[n];
+		next=new int[n];
+		anchor=new int[n];
+		Arrays.fill(parent, -1);
+
+		//Bucket of each blank node key (-1 if none yet)
+		int[] keyBuckets=new int[keyCount];
+		Arrays.fill(keyBuckets, -1);
+
+		for (int i=0; i<n; i++){
+			int s=subjectKeys[i];
+			int o=objectKeys[i];
+			int subjectBucket=(s>=0 && keyBuckets[s]>=0) ? find(keyBuckets[s]) : -1;
+			int objectBucket=(o>=0 && keyBuckets[o]>=0) ? find(keyBuckets[o]) : -1;
+
+			if (s>=0 && o>=0){
+				//Triple with two blank nodes
+				if (subjectBucket<0 && objectBucket<0){
+					createBucket(i);
+					keyBuckets[s]=i;
+					keyBuckets[o]=i;
+				}else if (objectBucket<0){
+					append(subjectBucket, i);
+					keyBuckets[o]=subjectBucket;
+				}else if (subjectBucket<0){
+					append(objectBucket, i);
+					keyBuckets[s]=objectBucket;
+				}else if (subjectBucket==objectBucket){
+					append(subjectBucket, i);
+				}else{
+					append(merge(subjectBucket, objectBucket), i);
+				}
+			}else if (s>=0 || o>=0){
+				//Triple with one blank node
+				int bucket=(s>=0) ? subjectBucket : objectBucket;
+				if (bucket>=0){
+					append(bucket, i);
+				}else{
+					createBucket(i);
+					keyBuckets[(s>=0) ? s : o]=i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new bucket with one triple
+	 *
+	 * @param i  index of the triple
+	 */
+	private void createBucket(int i){
+		parent[i]=i;
+		size[i]=1;
+		first[i]=i;
+		last[i]=i;
+		next[i]=-1;
+		anchor[i]=i;
+	}
+
+	/**
+	 * Appends a triple to a bucket
+	 *
+	 * @param root  root of the bucket
+	 * @param i  index of the triple
+	 */
+	private void append(int root, int i){
+		next[last[root]]=i;
+		last[root]=i;
+		next[i]=-1;
+		size[root]++;
+	}
+
+	/**
+	 * Merges two buckets (the triples of the object bucket follow the triples of the subject bucket)
+	 *
+	 * @param subjectRoot  root of the bucket of the subject (keeps its position)
+	 * @param objectRoot  root of the bucket of the object
+	 * @return  root of the merged bucket
+	 */
+	private int merge(int subjectRoot, int objectRoot){
+		int listFirst=first[subjectRoot];
+		int listLast=last[objectRoot];
+		int listAnchor=anchor[subjectRoot];
+		next[last[subjectRoot]]=first[objectRoot];
+
+		int root=subjectRoot;
+		int child=objectRoot;
+		if (size[root]<size[child]){
+			root=objectRoot;
+			child=subjectRoot;
+		}
+		parent[child]=root;
+		size[root]+=size[child];
+		first[root]=listFirst;
+		last[root]=listLast;
+		anchor[root]=listAnchor;
+		return root;
+	}
+
+	/**
+	 * Finds the root of a bucket (with path halving)
+	 *
+	 * @param bucket  bucket
+	 * @return  root
+	 */
+	private int find(int bucket){
+		while (parent[bucket]!=bucket){
+			parent[bucket]=parent[parent[bucket]];
+			bucket=parent[bucket];
+		}
+		return bucket;
+	}
+
+	/**
+	 * Creates the MSGs in one pass over all triples
+	 * Triples without blank nodes and triples which define the position of a bucket start a new MSG.
+	 *
+	 * @return  MSGs
+	 */
+	private ArrayList<MSG> group(){
+		ArrayList<MSG> msgs=new ArrayList<MSG>();
+		for (int i=0; i<triples.size(); i++){
+			if (subjectKeys[i]<0 && objectKeys[i]<0){
+				msgs.add(new MSG(triples.get(i)));
+			}else if (parent[i]>=0){
+				int root=find(i);
+				if (anchor[root]==i){
+					ArrayList<Triple> msgTriples=new ArrayList<Triple>(size[root]);
+					for (int j=first[root]; j>=0; j=next[j]){
+						msgTriples.add(triples.get(j));
+					}
+					msgs.add(new MSG(msgTriples));
+				}
+			}
+		}
+		return msgs;
+	}
+
+	//######################################################## Statistics
+
+	/**
+	 * Adds an MSG to MSG statistics (see {@link NamedGraph#getMSGStats(boolean)})
+	 *
+	 * @param stats  statistics
+	 * @param msgSize  number of triples in the MSG
+	 */
+	static void addMSGStats(int[] stats, int msgSize){
+		stats[0]++;
+		stats[1]=Math.max(stats[1], msgSize);
+		int sizeClass=Math.min(31-Integer.numberOfLeadingZeros(Math.max(1, msgSize)), NamedGraph.MSG_SIZE_CLASSES-1);
+		stats[2+sizeClass]++;
+	}
+
+	/**
+	 * Adds MSG statistics to other MSG statistics
+	 *
+	 * @param stats  statistics
+	 * @param r  statistics to add
+	 */
+	static void addMSGStats(int[] stats, int[] r){
+		stats[0]+=r[0];
+		stats[1]=Math.max(stats[1], r[1]);
+		for (int i=2; i<stats.length; i++){
+			stats[i]+=r[i];
+		}
+	}
+
+}
@@ -1,9 +1,10 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.graph;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.LinkedList;
 
 /**
@@ -18,6 +19,7 @@ import java.util.LinkedList;
  * @author <a href="mailto:schauss@uni-koblenz.de">Peter Schauß</a>
  */
 public class NamedGraph implements Comparable<NamedGraph> {
+	public static final int MSG_SIZE_CLASSES = 16;				//Number of MSG size classes in MSG statistics (see getMSGStats)
 	private String name;										//Name (IRI) identifying this graph, empty for default graph
 	private ArrayList<Triple> triples;							//Triples belonging to this graph
 	private LinkedList<NamedGraph> children;					//Children of this graph
@@ -26,7 +28,12 @@ public class NamedGraph implements Comparable<NamedGraph> {
 	private int depth;											//Nesting depth in graph hierarchy (starting with 0 for root graphs without parents, -1 for root graph with triples outside any graph)
 	
 	private ArrayList<NodeHash> variableHashes;					//Variable Hashes (used by Fisteus 2010 algorithm)
+	private HashMap<String,NodeHash> variableHashIndex;			//Variable Hashes by variable (index for variableHashes)
 	private ArrayList<String[]> msgSignatures;					//MSG Signatures (used by Tummarello 2005 algorithm)
+	private boolean blankNodes=true;							//Result of the last blank node scan (true if not scanned yet, see scanBlankNodes)
+	private BigInteger hashState;								//Product of statement and variable hashes after the first canonicalization step (used by Fisteus 2010 algorithm)
+	private String hashStateDigest;								//Digest algorithm of the hash state
+	private long hashStateFingerprint;							//Fingerprint of the triples when the hash state was saved (see getTripleFingerprint)
 
 	//######################################################## Constructors
 	
@@ -80,6 +87,117 @@ public class NamedGraph implements Comparable<NamedGraph> {
 
 	public void setVariableHashes(ArrayList<NodeHash> variableHashes) {
 		this.variableHashes = variableHashes;
+		//Rebuild index
+		if (variableHashes==null){
+			variableHashIndex=null;
+		}else{
+			variableHashIndex=new HashMap<String,NodeHash>(Math.max(16, variableHashes.size()*2));
+			for (NodeHash nh:variableHashes){
+				variableHashIndex.put(nh.getVar(), nh);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the hash of a variable (blank node) in constant time
+	 * 
+	 * @param var  variable (blank node)
+	 * @return  variable hash or null if there is no hash for the variable
+	 */
+	public NodeHash getVariableHash(String var) {
+		return variableHashIndex.get(var);
+	}
+	
+	/**
+	 * Adds the hash of a variable (blank node) to the list and the index
+	 * 
+	 * @param nh  variable hash
+	 */
+	public void addVariableHash(NodeHash nh) {
+		variableHashes.add(nh);
+		variableHashIndex.put(nh.getVar(), nh);
+	}
+	
+	/**
+	 * Gets the saved hash state (see {@link #setHashState(BigInteger, String)})
+	 * The state is invalid if it has been saved for another digest algorithm or if the triples have changed since
+	 * (detected with a fingerprint of all triples, so triples changed in place are detected as well).
+	 * 
+	 * @param digestAlgo  digest algorithm
+	 * @return  hash state or null if there is no valid hash state
+	 */
+	public BigInteger getHashState(String digestAlgo) {
+		if (hashState==null || !hashStateDigest.equalsIgnoreCase(digestAlgo) || hashStateFingerprint!=getTripleFingerprint()){
+			return null;
+		}
+		return hashState;
+	}
+	
+	/**
+	 * Saves the hash state of this graph (without sub graphs)
+	 * 
+	 * @param hashState  combined hash of statements and variables
+	 * @param digestAlgo  digest algorithm used to calculate the hash state
+	 */
+	public void setHashState(BigInteger hashState, String digestAlgo) {
+		this.hashState = hashState;
+		this.hashStateDigest = digestAlgo;
+		this.hashStateFingerprint = getTripleFingerprint();
+	}
+	
+	/**
+	 * Keeps the saved hash state after a change of the triples which does not change it
+	 * (e.g. renaming blank nodes without merging them, see Fisteus 2010 algorithm)
+	 */
+	public void updateHashStateFingerprint() {
+		if (hashState!=null){
+			hashStateFingerprint = getTripleFingerprint();
+		}
+	}
+	
+	/**
+	 * Calculates a fingerprint of all triples of this graph (independent of the triple order)
+	 * 
+	 * @return  fingerprint
+	 */
+	private long getTripleFingerprint() {
+		long fingerprint=triples.size();
+		for (Triple t:triples){
+			long h=getTermFingerprint(t.getSubject());
+			h=(h*0x100000001b3L)^getTermFingerprint(t.getPredicate());
+			h=(h*0x100000001b3L)^getTermFingerprint(t.getObject());
+			//Mix bits (MurmurHash3 finalizer), so fingerprints of different triples do not cancel out in the sum
+			h^=h>>>33;
+			h*=0xff51afd7ed558ccdL;
+			h^=h>>>33;
+			h*=0xc4ceb9fe1a85ec53L;
+			h^=h>>>33;
+			fingerprint+=h;
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Calculates a 64 bit FNV-1a hash of a term
+	 * 
+	 * @param term  term
+	 * @return  hash
+	 */
+	private static long getTermFingerprint(String term) {
+		long h=0xcbf29ce484222325L;
+		for (int i=0; i<term.length(); i++){
+			h^=term.charAt(i);
+			h*=0x100000001b3L;
+		}
+		return h;
+	}
+	
+	/**
+	 * Removes the saved hash state
+	 */
+	public void clearHashState() {
+		hashState = null;
+		hashStateDigest = null;
 	}
 	
 	public ArrayList<MSG> getMSGs() {
@@ -90,6 +208,34 @@ public class NamedGraph implements Comparable<NamedGraph> {
 		return msgSignatures;
 	}
 	
+	/**
+	 * Has the last scan found blank nodes in the triples of this graph? (see {@link #scanBlankNodes()})
+	 * Graphs which have not been scanned yet are treated as graphs with blank nodes.
+	 * 
+	 * @return  false if the graph is ground
+	 */
+	public boolean hasBlankNodes() {
+		return blankNodes;
+	}
+	
+	/**
+	 * Scans the triples of this graph (without sub graphs) for blank nodes and records the result
+	 * The name of this graph is not scanned, it is handled with the parent graph.
+	 * Signature algorithms scan each graph once before canonicalization, so ground graphs can skip all blank node handling.
+	 * 
+	 * @return  true if there is at least one blank node, false if the graph is ground
+	 */
+	public boolean scanBlankNodes() {
+		blankNodes=false;
+		for (Triple t:triples){
+			if (t.getSubject().startsWith("_") || t.getPredicate().startsWith("_") || t.getObject().startsWith("_")){
+				blankNodes=true;
+				break;
+			}
+		}
+		return blankNodes;
+	}
+	
 	//######################################################## Helper functions
 	
 	/**
@@ -402,6 +548,7 @@ public class NamedGraph implements Comparable<NamedGraph> {
 	 */
 	public void addTriple(Triple t){
 		triples.add(t);
+		clearHashState();
 	}
 	
 	/**
@@ -411,6 +558,7 @@ public class NamedGraph implements Comparable<NamedGraph> {
 	 */
 	public void removeTriple(Triple t){
 		triples.remove(t);
+		clearHashState();
 	}
 	
 	/**
@@ -532,99 +680,8 @@ public class NamedGraph implements Comparable<NamedGraph> {
 		}
 		*/
 		
-		msgs = new ArrayList<MSG>(triples.size()/2);
-		Hashtable<String, MSG> buckets = new Hashtable<String, MSG>();
-		
-		for (Triple t:triples){
-			//Get subject values
-			String subject=t.getSubject();
-			boolean subjectBN=subject.startsWith("_");
-			
-			//Get object values
-			String object=t.getObject();
-			boolean objectBN=object.startsWith("_");
-			
-			//Add
-			if (subjectBN && objectBN){
-				//Blank node triples with two blank nodes - find buckets
-				MSG subjectBucket=buckets.get(subject);
-				MSG objectBucket=buckets.get(object);
-				
-				if (subjectBucket==null && objectBucket==null){
-					//No existing buckets yet - add bucket with two blank nodes
-					MSG bucket=new MSG(t);
-					msgs.add(bucket);
-					buckets.put(subject, bucket);
-					buckets.put(object, bucket);
-				}else if (subjectBucket!=null && objectBucket==null){
-					//Only subject bucket exists
-					subjectBucket.addTriple(t);
-					buckets.put(object, subjectBucket);
-				}else if (subjectBucket==null && objectBucket!=null){
-					//Only object bucket exists
-					objectBucket.addTriple(t);
-					buckets.put(subject, objectBucket);
-				}else if (subjectBucket==objectBucket){
-					//Both buckets exist and are equal
-					subjectBucket.addTriple(t);
-				}else{
-					//Both buckets exist and they are NOT equal! Need to merge two existing buckets!
-					//Update all objectBucket blank nodes to link to subjectBucket
-					buckets.put(subject, subjectBucket);
-					buckets.put(object, subjectBucket);
-					for (Triple tu:objectBucket.getTriples()){
-						for (int i=0; i<=2; i+=2){
-							if (tu.getByIndex(i).startsWith("_")){
-								buckets.put(tu.getByIndex(i), subjectBucket);
-							}
-						}
-					}
-					//Remove object bucket
-					msgs.remove(objectBucket);
-					//Put all statements of objectBucket into subjectBucket and add the current statement
-					subjectBucket.addTriples( objectBucket.getTriples() );
-					subjectBucket.addTriple(t);
-				}
-				
-			} else if (subjectBN || objectBN){
-				//Blank node triples with one blank node - find bucket
-				MSG bucket=null;
-				if (subjectBN){
-					bucket=buckets.get(subject);
-				} else {
-					bucket=buckets.get(object);
-				}
-				
-				//Add to bucket or create new bucket
-				if (bucket!=null){
-					//Add to existing
-					bucket.addTriple(t);
-				}else{
-					//Add to new bucket
-					bucket=new MSG(t);
-					msgs.add(bucket);
-					//Add keys
-					if (subjectBN){
-						buckets.put(subject, bucket);
-					}
-					if (objectBN){
-						buckets.put(object, bucket);
-					}
-				}
-				
-			}else{
-				//Handle remaining triples without blank nodes
-				msgs.add( new MSG(t) );
-				if (t.getSubject().startsWith("_") || t.getObject().startsWith("_")){
-					System.err.println("something went wrong with "+t);
-				}				
-			}
-			
-		}
-		
+		msgs = splitIntoMSGs(triples);
 		triples.clear();
-		buckets.clear();
-		msgs.trimToSize();
 		
 		//Handle all children
 		for (NamedGraph g:children){
@@ -662,6 +719,62 @@ public class NamedGraph implements Comparable<NamedGraph> {
 		*/
 	}
 	
+	/**
+	 * Splits graph into MSGs in parallel mode (recursive, same result as {@link #splitIntoMSGs()})
+	 * 
+	 * @param parallel  map blank nodes by the threads of the worker pool?
+	 * @throws Exception  if a parallel task fails
+	 */
+	public void splitIntoMSGs(boolean parallel) throws Exception {
+		if (!parallel){
+			splitIntoMSGs();
+			return;
+		}
+		msgs = MSGSplitter.splitParallel(triples);
+		triples.clear();
+		
+		//Handle all children
+		for (NamedGraph g:children){
+			g.splitIntoMSGs(true);
+		}
+	}
+	
+	/**
+	 * Splits triples into MSGs (the triple list is not changed)
+	 * Triples without blank nodes become MSGs with one triple.
+	 * Uses a union-find over blank nodes (see {@link MSGSplitter}).
+	 * 
+	 * @param triples  triples to split
+	 * @return  MSGs
+	 */
+	public static ArrayList<MSG> splitIntoMSGs(ArrayList<Triple> triples){
+		return MSGSplitter.split(triples);
+	}
+	
+	/** Gets MSG statistics of a named graph (can be recursive to include sub graphs if recursive is set to true)
+	 * Graphs which have not been split into MSGs yet are split temporarily (the graph is not changed).
+	 * Array index - value
+	 * 0 - MSG count
+	 * 1 - triple count of the largest MSG
+	 * 2+k - MSGs with 2^k to 2^(k+1)-1 triples (k=0..MSG_SIZE_CLASSES-1, the last class contains all larger MSGs as well)
+	 * 
+	 * @param recursive count recursively in all sub graphs?
+	 * @return array with statistics
+	 */
+	public int[] getMSGStats(boolean recursive){
+		int[] stats=new int[2+MSG_SIZE_CLASSES];
+		for (MSG msg:(msgs!=null) ? msgs : splitIntoMSGs(triples)){
+			MSGSplitter.addMSGStats(stats, msg.getTriples().size());
+		}
+		//Sub Graphs
+		if (recursive){
+			for (NamedGraph subG:children){
+				MSGSplitter.addMSGStats(stats, subG.getMSGStats(recursive));
+			}
+		}
+		return stats;
+	}
+	
 	/**
 	 * Merges all MSGs back to plain triple lists
 	 * All values associated with MSGs (hash, signature, certificate) will get lost
@@ -794,6 +907,33 @@ public class NamedGraph implements Comparable<NamedGraph> {
 	}
 	
 	
+	/**
+	 * Copies the graph with its triples and sub graphs (recursive)
+	 * Triples of MSGs are added to the triples of the copy (like {@link #mergeMSGs()}).
+	 * Temporary data (hashes, variable hashes and MSG signatures) is not copied.
+	 * 
+	 * @param parent  parent of the copy (the copy is added to its children) or null
+	 * @return  copy of the graph
+	 */
+	public NamedGraph copy(NamedGraph parent){
+		NamedGraph c=new NamedGraph(name, depth, parent);
+		c.triples.ensureCapacity(triples.size());
+		for (Triple t:triples){
+			c.triples.add( new Triple(t.getSubject(), t.getPredicate(), t.getObject(), t.getAnnotation()) );
+		}
+		if (msgs!=null){
+			for (MSG msg:msgs){
+				for (Triple t:msg.getTriples()){
+					c.triples.add( new Triple(t.getSubject(), t.getPredicate(), t.getObject(), t.getAnnotation()) );
+				}
+			}
+		}
+		for (NamedGraph subG:children){
+			subG.copy(c);
+		}
+		return c;
+	}
+	
 	/**
 	 * Clears graph by removing all MSGs and sub graphs (recursive)
 	 */
@@ -2,6 +2,7 @@ package de.uni_koblenz.aggrimm.icp.crypto.sign.graph;
 
 import java.math.BigInteger;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * SignatureData is used to keep track of all relevant signature data which belongs to a graph collection.
@@ -85,4 +86,45 @@ public class SignatureData {
 		this.verificationCertificate = verficiationCertificate;
 	}
 	
+	//######################################################## Copy
+	
+	/**
+	 * Copies the signature data (e.g. to sign the same hash with several keys)
+	 * The copy gets its own digest generator.
+	 * 
+	 * @return  copy of the signature data
+	 */
+	public SignatureData copy() {
+		SignatureData c=new SignatureData();
+		c.hash=hash;
+		c.signature=signature;
+		c.digestGen=copyDigestGen();
+		c.canonicalizationMethod=canonicalizationMethod;
+		c.graphDigestMethod=graphDigestMethod;
+		c.serializationMethod=serializationMethod;
+		c.signatureMethod=signatureMethod;
+		c.verificationCertificate=verificationCertificate;
+		return c;
+	}
+	
+	/**
+	 * Copies the digest generator
+	 * 
+	 * @return  clone of the digest generator (new instance of the algorithm if it cannot be cloned, null if there is none)
+	 */
+	private MessageDigest copyDigestGen() {
+		if (digestGen==null){
+			return null;
+		}
+		try {
+			return (MessageDigest)digestGen.clone();
+		} catch (CloneNotSupportedException e){
+			try {
+				return MessageDigest.getInstance(digestGen.getAlgorithm());
+			} catch (NoSuchAlgorithmException e2){
+				return digestGen;
+			}
+		}
+	}
+	
 }
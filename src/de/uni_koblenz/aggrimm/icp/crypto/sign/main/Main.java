@@ -56,17 +56,24 @@ public class Main {
 	 */
 	private static void createKey() {
 		String keyPrefix = getStringValue("Please specify a filename prefix for the created key files:");
-		RSAKeyPair keyPair = null;
+		SigningKeyPair keyPair = null;
 
 		try {
-			switch (getChoice("Chose the key size of the RSA key:",
-					" (1) 2048 bit\n" + " (2) 3072 bit", 2)) {
+			switch (getChoice("Chose the type of the key:", " (1) RSA 2048 bit\n"
+					+ " (2) RSA 3072 bit\n" + " (3) EC P-256 (ECDSA)\n"
+					+ " (4) Ed25519", 4)) {
 				case 1:
 					keyPair = new RSAKeyPair(2048);
 					break;
 				case 2:
 					keyPair = new RSAKeyPair(3072);
 					break;
+				case 3:
+					keyPair = new SigningKeyPair("EC", 256);
+					break;
+				case 4:
+					keyPair = new SigningKeyPair("Ed25519", 0);
+					break;
 			}
 
 			keyPair.writePublicKey(keyPrefix + "_public.key");
@@ -110,11 +117,11 @@ public class Main {
 
 		String outputGraph = getStringValue("Please specify the filename of the signed output graph:");
 
-		RSAKeyPair keyPair = null;
+		SigningKeyPair keyPair = null;
 		String skFileName = getStringValue("Please specify the filename of the private key file:");
 		String pkFileName = getStringValue("Please specify the filename of the public key file:");
 		try {
-			keyPair = new RSAKeyPair(skFileName, pkFileName);
+			keyPair = new SigningKeyPair(skFileName, pkFileName);
 		}
 		catch (Exception e) {
 			System.err
@@ -127,7 +134,10 @@ public class Main {
 			switch (getChoice(
 					"Please specify the framework configuration to be used for signing the graph:",
 					" (1) carroll-2003\n" + " (2) fisteus-2010\n"
-							+ " (3) sayers-2004\n" + " (4) tummarello-2005", 4)) {
+							+ " (3) sayers-2004\n" + " (4) tummarello-2005\n"
+							+ " (5) carroll-2003-merkle\n"
+							+ " (6) carroll-2003-components\n"
+							+ " (7) rdfc-1.0", 7)) {
 				case 1:
 					config = SignatureAlgorithmList
 							.getAlgorithm("carroll-2003");
@@ -143,6 +153,17 @@ public class Main {
 					config = SignatureAlgorithmList
 							.getAlgorithm("tummarello-2005");
 					break;
+				case 5:
+					config = SignatureAlgorithmList
+							.getAlgorithm("carroll-2003-merkle");
+					break;
+				case 6:
+					config = SignatureAlgorithmList
+							.getAlgorithm("carroll-2003-components");
+					break;
+				case 7:
+					config = SignatureAlgorithmList.getAlgorithm("rdfc-1.0");
+					break;
 			}
 		}
 		catch (Exception e) {
@@ -186,7 +207,7 @@ public class Main {
 		PublicKey publicKey = null;
 		String pkFileName = getStringValue("Please specify the filename of the public key file:");
 		try {
-			publicKey = RSAKeyPair.loadPublicKey(pkFileName);
+			publicKey = SigningKeyPair.loadPublicKey(pkFileName);
 		}
 		catch (Exception e) {
 			System.err
@@ -1,9 +1,21 @@
 package de.uni_koblenz.aggrimm.icp.crypto.sign.main;
 
 import java.security.KeyPair;
-
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.MultiSigner;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmInterface;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureAlgorithmList;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.SignatureVerifier;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.algorithm.SignatureAlgorithmTummarello2005;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.DigestCache;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.FrameworkProvider;
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.generic.SignatureMethod;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.GraphCollection;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.trigplus.TriGPlusReader;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.trigplus.TriGPlusWriter;
@@ -12,6 +24,10 @@ public class Sign {
 
 	private static String envHashAlgorithm = "sha-256";
 
+	private static boolean envResign = false;
+
+	private static String envSignatureMethod = null;
+
 	private static void checkNull(Object obj, String errorMsg) {
 		if (obj == null) {
 			System.err.println(errorMsg);
@@ -20,19 +36,33 @@ public class Sign {
 	}
 
 	public static void main(String[] args) {
-		if (args.length != 10) {
+		envResign = Arrays.asList(args).contains("-r");
+		int paramCount = envResign ? args.length - 1 : args.length;
+		if (paramCount != 10 && paramCount != 12 && paramCount != 14) {
 			System.out
 					.println("Wrong number of parameters. All following parameters must be set in arbitrary order: ");
 			System.out.println(" -i  input graph");
 			System.out.println(" -o  output graph");
 			System.out.println(" -sk file name of secret (private) key ");
 			System.out.println(" -pk file name of public key ");
+			System.out.println("     (comma separated lists of key files sign with several keys,");
+			System.out.println("     supported by all configurations except tummarello-2005)");
 			System.out.println(" -c  framework configuration");
 			System.out.println("     possible values:");
 			System.out.println("       carroll-2003");
 			System.out.println("       fisteus-2010");
 			System.out.println("       sayers-2004");
 			System.out.println("       tummarello-2005");
+			System.out.println("       carroll-2003-merkle");
+			System.out.println("       carroll-2003-components");
+			System.out.println("       rdfc-1.0");
+			System.out.println("Optional parameters:");
+			System.out.println(" -d  digest algorithm (default: sha-256)");
+			System.out.println("     e.g. sha-256, sha-512, blake2b-512, blake2b-256");
+			System.out.println(" -r  sign a signed input graph again");
+			System.out.println("     (tummarello-2005 keeps the signatures of unchanged MSGs)");
+			System.out.println(" -s  signature method (default: depends on the key)");
+			System.out.println("     rsa, sha256withrsa, sha256withecdsa, ed25519");
 
 			System.exit(1);
 		}
@@ -62,6 +92,12 @@ public class Sign {
 				case "-pk":
 					pubKey = args[i + 1];
 					break;
+				case "-d":
+					envHashAlgorithm = args[i + 1];
+					break;
+				case "-s":
+					envSignatureMethod = args[i + 1].toLowerCase();
+					break;
 			}
 
 		checkNull(inputGraph, "Input graph missing.");
@@ -70,9 +106,33 @@ public class Sign {
 		checkNull(pubKey, "Public key missing.");
 		checkNull(privKey, "Private key missing.");
 
-		KeyPair keyPair = null;
 		try {
-			keyPair = new RSAKeyPair(privKey, pubKey).getKeyPair();
+			FrameworkProvider.install();
+			MessageDigest.getInstance(envHashAlgorithm);
+		}
+		catch (NoSuchAlgorithmException e) {
+			System.err.println("Unknown digest algorithm.");
+			System.exit(-3);
+		}
+
+		if (envSignatureMethod != null
+				&& !envSignatureMethod.equals(SignatureMethod.RSA)
+				&& SignatureMethod.getAlgorithmName(envSignatureMethod) == null) {
+			System.err.println("Unknown signature method.");
+			System.exit(-3);
+		}
+
+		List<KeyPair> keyPairs = new ArrayList<KeyPair>();
+		try {
+			String[] privKeys = privKey.split(",");
+			String[] pubKeys = pubKey.split(",");
+			if (privKeys.length != pubKeys.length) {
+				throw new Exception("Number of private and public keys differ.");
+			}
+			for (int i = 0; i < privKeys.length; ++i) {
+				keyPairs.add(new SigningKeyPair(privKeys[i], pubKeys[i])
+						.getKeyPair());
+			}
 		}
 		catch (Exception e) {
 			System.err.println("Invalid key pair.");
@@ -90,6 +150,14 @@ public class Sign {
 			System.exit(-3);
 		}
 
+		// Tummarello signs each MSG instead of a hash of the graph
+		if (keyPairs.size() > 1
+				&& config instanceof SignatureAlgorithmTummarello2005) {
+			System.err.println("Multiple keys are not supported by "
+					+ config.getName() + ", sign with a single key pair.");
+			System.exit(-3);
+		}
+
 		GraphCollection gc = null;
 		try {
 			gc = TriGPlusReader.readFile(inputGraph, true);
@@ -101,7 +169,12 @@ public class Sign {
 		}
 
 		try {
-			signer.signGraph(keyPair, gc, outputGraph, config);
+			if (keyPairs.size() == 1) {
+				signer.signGraph(keyPairs.get(0), gc, outputGraph, config);
+			}
+			else {
+				signer.signGraph(keyPairs, gc, outputGraph, config);
+			}
 		}
 		catch (Exception e) {
 			System.err.println("Signing operation failed.");
@@ -116,13 +189,62 @@ public class Sign {
 			String outputGraph, SignatureAlgorithmInterface config)
 			throws Exception {
 
+		// Remove the signature graph of a signed input graph
+		if (envResign) {
+			SignatureVerifier.removeSignatureGraph(inputGraph);
+		}
+
+		// Request a signature method (otherwise the default of the key is used)
+		if (envSignatureMethod != null) {
+			inputGraph.getSignature().setSignatureMethod(envSignatureMethod);
+		}
+
 		config.canonicalize(inputGraph);
 		config.postCanonicalize(inputGraph);
 		config.hash(inputGraph, envHashAlgorithm);
 		config.postHash(inputGraph);
-		config.sign(inputGraph, keyPair.getPrivate(), "\"cert\"");
+		if (envResign && config instanceof SignatureAlgorithmTummarello2005) {
+			// Keep the signatures of unchanged MSGs
+			((SignatureAlgorithmTummarello2005) config).sign(inputGraph,
+					keyPair.getPrivate(), keyPair.getPublic(), "\"cert\"");
+		} else {
+			config.sign(inputGraph, keyPair.getPrivate(), "\"cert\"");
+		}
 		config.assemble(inputGraph, "_:sigGraph");
 
 		TriGPlusWriter.writeFile(inputGraph, outputGraph);
+
+		// Persist digests of frequently hashed terms for the next run
+		DigestCache.saveAll();
+	}
+
+	void signGraph(List<KeyPair> keyPairs, GraphCollection inputGraph,
+			String outputGraph, SignatureAlgorithmInterface config)
+			throws Exception {
+
+		// Remove the signature graph of a signed input graph
+		if (envResign) {
+			SignatureVerifier.removeSignatureGraph(inputGraph);
+		}
+
+		// Request a signature method (otherwise the default of each key is used)
+		if (envSignatureMethod != null) {
+			inputGraph.getSignature().setSignatureMethod(envSignatureMethod);
+		}
+
+		// Canonicalize and hash once, sign with all keys
+		List<PrivateKey> privateKeys = new ArrayList<PrivateKey>();
+		List<String> certificates = new ArrayList<String>();
+		for (KeyPair keyPair : keyPairs) {
+			privateKeys.add(keyPair.getPrivate());
+			certificates.add("\"cert\"");
+		}
+		MultiSigner.sign(inputGraph, config, envHashAlgorithm, privateKeys,
+				certificates, "_:sigGraph");
+
+		TriGPlusWriter.writeFile(inputGraph, outputGraph);
+
+		// Persist digests of frequently hashed terms for the next run
+		DigestCache.saveAll();
 	}
 }
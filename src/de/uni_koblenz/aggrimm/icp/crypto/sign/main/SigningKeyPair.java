@@ -0,0 +1,176 @@
+package de.uni_koblenz.aggrimm.icp.crypto.sign.main;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Key pair for signing graphs (RSA, EC or Ed25519)
+ * Keys are stored as PKCS #8 (private key) and X.509 (public key) files. The
+ * key algorithm of a key file is detected when it is loaded.
+ */
+public class SigningKeyPair {
+
+	/**
+	 * Key algorithms which are tried when loading key files
+	 */
+	public static final String[] KEY_ALGORITHMS = { "RSA", "EC", "Ed25519" };
+
+	private KeyPair keyPair;
+
+	/**
+	 * Generates a new key pair
+	 *
+	 * @param keyAlgorithm
+	 *            RSA, EC or Ed25519
+	 * @param keySize
+	 *            key size in bit (RSA: e.g. 2048, EC: 256, 384 or 521,
+	 *            ignored for Ed25519)
+	 * @throws NoSuchAlgorithmException
+	 *             if the key algorithm or key size is not supported
+	 */
+	public SigningKeyPair(String keyAlgorithm, int keySize)
+			throws NoSuchAlgorithmException {
+		KeyPairGenerator keyGen = KeyPairGenerator.getInstance(keyAlgorithm);
+		if (keyAlgorithm.equals("EC")) {
+			try {
+				keyGen.initialize(new ECGenParameterSpec("secp" + keySize
+						+ "r1"));
+			}
+			catch (InvalidAlgorithmParameterException e) {
+				throw new NoSuchAlgorithmException(e);
+			}
+		}
+		else if (!keyAlgorithm.equals("Ed25519")) {
+			keyGen.initialize(keySize);
+		}
+
+		this.keyPair = keyGen.generateKeyPair();
+	}
+
+	/**
+	 * Loads a key pair from key files
+	 *
+	 * @param privateKeyFileName
+	 *            PKCS #8 private key file
+	 * @param publicKeyFileName
+	 *            X.509 public key file
+	 * @throws IOException
+	 *             if a file cannot be read or contains no supported key
+	 */
+	public SigningKeyPair(String privateKeyFileName, String publicKeyFileName)
+			throws IOException {
+		this.keyPair = new KeyPair(loadPublicKey(publicKeyFileName),
+				loadPrivateKey(privateKeyFileName));
+	}
+
+	public KeyPair getKeyPair() {
+		return this.keyPair;
+	}
+
+	public PrivateKey getPrivateKey() {
+		return this.keyPair.getPrivate();
+	}
+
+	public PublicKey getPublicKey() {
+		return this.keyPair.getPublic();
+	}
+
+	public void writePrivateKey(String fileName) throws IOException {
+		writeKeyFile(fileName, new PKCS8EncodedKeySpec(this.keyPair
+				.getPrivate().getEncoded()).getEncoded());
+	}
+
+	public void writePublicKey(String fileName) throws IOException {
+		writeKeyFile(fileName, new X509EncodedKeySpec(this.keyPair
+				.getPublic().getEncoded()).getEncoded());
+	}
+
+	public static PrivateKey loadPrivateKey(String privateKeyFileName)
+			throws IOException {
+		PKCS8EncodedKeySpec privateKeySpec = new PKCS8EncodedKeySpec(
+				readKeyFile(privateKeyFileName));
+
+		for (String algorithm : KEY_ALGORITHMS) {
+			try {
+				return KeyFactory.getInstance(algorithm).generatePrivate(
+						privateKeySpec);
+			}
+			catch (NoSuchAlgorithmException e) {
+				// Try next key algorithm
+			}
+			catch (InvalidKeySpecException e) {
+				// Try next key algorithm
+			}
+		}
+
+		throw new IOException("Unsupported private key: " + privateKeyFileName);
+	}
+
+	public static PublicKey loadPublicKey(String publicKeyFileName)
+			throws IOException {
+		X509EncodedKeySpec publicKeySpec = new X509EncodedKeySpec(
+				readKeyFile(publicKeyFileName));
+
+		for (String algorithm : KEY_ALGORITHMS) {
+			try {
+				return KeyFactory.getInstance(algorithm).generatePublic(
+						publicKeySpec);
+			}
+			catch (NoSuchAlgorithmException e) {
+				// Try next key algorithm
+			}
+			catch (InvalidKeySpecException e) {
+				// Try next key algorithm
+			}
+		}
+
+		throw new IOException("Unsupported public key: " + publicKeyFileName);
+	}
+
+	private static byte[] readKeyFile(String fileName) throws IOException {
+		File keyFile = new File(fileName);
+
+		FileInputStream fis = null;
+		byte[] keyBytes = null;
+
+		try {
+			fis = new FileInputStream(keyFile);
+			keyBytes = new byte[(int) keyFile.length()];
+			fis.read(keyBytes);
+		}
+		finally {
+			if (fis != null) {
+				fis.close();
+			}
+		}
+
+		return keyBytes;
+	}
+
+	private static void writeKeyFile(String fileName, byte[] keyBytes)
+			throws IOException {
+		FileOutputStream fos = null;
+		try {
+			fos = new FileOutputStream(fileName);
+			fos.write(keyBytes);
+		}
+		finally {
+			if (fos != null) {
+				fos.close();
+			}
+		}
+	}
+}
@@ -3,6 +3,7 @@ package de.uni_koblenz.aggrimm.icp.crypto.sign.ontology;
 import java.security.MessageDigest;
 import java.util.LinkedList;
 
+import de.uni_koblenz.aggrimm.icp.crypto.sign.algorithm.auxiliary.FrameworkProvider;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.SignatureData;
 import de.uni_koblenz.aggrimm.icp.crypto.sign.graph.Triple;
 
@@ -20,8 +21,8 @@ public class Ontology {
 	private String sigPrefix="signature";
 	
 	private static final String sigIri="http://icp.it-risk.iwvi.uni-koblenz.de/ontologies/signature.owl#";	//IRI for signature statements
-	private static final String subjectSigMethod="_:gsm-1";													//Graph Signature Method Subject	
-	private static final String subjectSig="_:sig-1";														//Signature Subject
+	private String subjectSigMethod;																		//Graph Signature Method Subject (_:gsm-1)
+	private String subjectSig;																				//Signature Subject (_:sig-1)
 
 	/**
 	 * Signature Data
@@ -50,8 +51,23 @@ public class Ontology {
 	}
 	
 	public Ontology(SignatureData signatureData){
+		this(signatureData, 1);
+	}
+	
+	/**
+	 * Creates the signature statements of a signature
+	 * Signatures of a multi-signature graph are numbered (subjects _:gsm-n and _:sig-n).
+	 * 
+	 * @param signatureData  signature data (null for empty statements)
+	 * @param number  number of the signature (starting with 1)
+	 */
+	public Ontology(SignatureData signatureData, int number){
 		//Signature Data
 		sigData=signatureData;
+		
+		//Subjects
+		subjectSigMethod="_:gsm-"+number;
+		subjectSig="_:sig-"+number;
 				
 		//Prepare Triples
 		triples=new LinkedList<Triple>();
@@ -114,22 +130,23 @@ public class Ontology {
 			String object=t.getObject();
 			int offset;
 			
-			//Digest method (low level string hashing): dm-md5 / dm-sha1
+			//Digest method (low level string hashing): dm-md5 / dm-sha1 / dm-blake2b-512
 			if (predicate.equals("<"+sigIri+"hasDigestMethod>")){
 				offset=object.indexOf("#dm-");
 				if (offset>0){
 					String digestName=object.substring(offset+4, object.length()-1);
+					FrameworkProvider.install();
 					sigData.setDigestGen( MessageDigest.getInstance(digestName) );
 				}
 				
-			//Canonicalization method: gcm-carroll-2003 / gcm-fisteus-2010 / gcm-sayers-2004
+			//Canonicalization method: gcm-carroll-2003 / gcm-carroll-2003-components / gcm-fisteus-2010 / gcm-rdfc-1.0 / gcm-sayers-2004
 			}else if (predicate.equals("<"+sigIri+"hasGraphCanonicalizationMethod>")){
 				offset=object.indexOf("#");
 				if (offset>0){
 					sigData.setCanonicalizationMethod( object.substring(offset+1, object.length()-1) );
 				}
 			
-			//Digest method: gdm-carroll-2003 / gdm-fisteus-2010 / gdm-melnik-2001 / gdm-sayers-2004 
+			//Digest method: gdm-carroll-2003 / gdm-carroll-2003-merkle / gdm-fisteus-2010 / gdm-melnik-2001 / gdm-rdfc-1.0 / gdm-sayers-2004 
 			}else if (predicate.equals("<"+sigIri+"hasGraphDigestMethod>")){
 				offset=object.indexOf("#");
 				if (offset>0){
@@ -143,11 +160,11 @@ public class Ontology {
 					sigData.setSerializationMethod( object.substring(offset+1, object.length()-1) );
 				}
 				
-			//Signature method: sm-dsa / sm-elgamal / sm-rsa
+			//Signature method: sm-rsa / sm-sha256withrsa / sm-sha256withecdsa / sm-ed25519 (see SignatureMethod)
 			}else if (predicate.equals("<"+sigIri+"hasSignatureMethod>")){
-				offset=object.indexOf("#");
+				offset=object.indexOf("#sm-");
 				if (offset>0){
-					sigData.setSignatureMethod( object.substring(offset+1, object.length()-1) );
+					sigData.setSignatureMethod( object.substring(offset+4, object.length()-1) );
 				}
 							
 			//Graph signing method: Reference to gsm triple
@@ -304,6 +321,21 @@ public class Ontology {
 		return "carroll-2003";
 	}
 
+	//Carroll 2003 with Merkle tree digest
+	public static String getAlgorithmNameCarroll2003Merkle(){
+		return "carroll-2003-merkle";
+	}
+
+	//Carroll 2003 with independently canonicalized blank node components
+	public static String getAlgorithmNameCarroll2003Components(){
+		return "carroll-2003-components";
+	}
+
+	//RDF Dataset Canonicalization (RDFC-1.0)
+	public static String getAlgorithmNameRdfc10(){
+		return "rdfc-1.0";
+	}
+
 	//Fisteus 2010
 	public static String getAlgorithmNameFisteus2010(){
 		return "fisteus-2010";